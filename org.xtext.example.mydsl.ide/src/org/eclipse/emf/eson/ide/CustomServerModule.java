@@ -9,5 +9,7 @@ public final class CustomServerModule extends AbstractModule {
 	@Override
 	protected void configure() {
 		bind(IWorkspaceConfigFactory.class).to(MultiProjectWorkspaceConfigFactory.class);
+		install(new PersistentIndexServerModule());
+		install(new ResourceSetServerModule());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,371 @@
+package org.eclipse.emf.eson.ide;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.eson.resource.EFactoryResource;
+import org.eclipse.emf.eson.util.EcoreUtil3;
+import org.eclipse.xtext.build.BuildRequest;
+import org.eclipse.xtext.build.IncrementalBuilder.Result;
+import org.eclipse.xtext.build.IndexState;
+import org.eclipse.xtext.ide.server.ProjectManager;
+import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.resource.EObjectDescription;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.resource.IReferenceDescription;
+import org.eclipse.xtext.resource.IResourceDescription;
+import org.eclipse.xtext.resource.IExternalContentSupport.IExternalContentProvider;
+import org.eclipse.xtext.resource.IResourceServiceProvider;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.eclipse.xtext.resource.impl.AbstractResourceDescription;
+import org.eclipse.xtext.resource.impl.ProjectDescription;
+import org.eclipse.xtext.resource.impl.ResourceDescriptionsData;
+import org.eclipse.xtext.resource.persistence.SerializableResourceDescription;
+import org.eclipse.xtext.service.OperationCanceledManager;
+import org.eclipse.xtext.util.CancelIndicator;
+import org.eclipse.xtext.validation.CheckMode;
+import org.eclipse.xtext.validation.Issue;
+import org.eclipse.xtext.workspace.IProjectConfig;
+import org.eclipse.xtext.workspace.ISourceFolder;
+import org.eclipse.xtext.xbase.lib.Procedures.Procedure2;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+
+/**
+ * ProjectManager whose initial build uses all cores, instead of building the files one after the other.
+ *
+ * First, all files are loaded and indexed (which, for ESON, is the preLinkingPhase build of the
+ * EFactoryDerivedStateComputer) in parallel, each thread into its own resource sets, and their exported objects
+ * are merged into the index of the project.  As that index is then complete, linking a file no longer depends on
+ * any other file having been built before, so all files are then loaded again, linked, validated and described in
+ * parallel batches.  Every batch uses its own fresh resource set, so that no EObject is ever shared between threads.
+ *
+ * Later (incremental) builds, and small initial builds, are left to the IncrementalBuilder.
+ * Both write what they built to the EFactoryResourceStorageFacade cache, if it is enabled.
+ */
+public class ParallelBuildProjectManager extends ProjectManager {
+	private static final Logger logger = Logger.getLogger(ParallelBuildProjectManager.class);
+
+	/**
+	 * Guice @Named key of an int, the number of threads of the initial build; by default, the number of processors.
+	 * 1 (or less) means the initial build is left to the IncrementalBuilder.
+	 */
+	public static final String THREADS_KEY = "eson.lsBuild.threads";
+
+	// a batch loads (and keeps) the resources which its files refer to, so it should not become too big
+	private static final int MAX_BATCH_SIZE = 100;
+
+	@Inject(optional = true) @Named(THREADS_KEY)
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	@Inject
+	private OperationCanceledManager operationCanceledManager;
+
+	private Procedure2<? super URI, ? super Iterable<Issue>> issueAcceptor;
+
+	@Override
+	public void initialize(ProjectDescription description, IProjectConfig projectConfig, Procedure2<? super URI, ? super Iterable<Issue>> acceptor,
+			IExternalContentProvider openedDocumentsContentProvider, Provider<Map<String, ResourceDescriptionsData>> indexProvider, CancelIndicator cancelIndicator) {
+		this.issueAcceptor = acceptor;
+		super.initialize(description, projectConfig, acceptor, openedDocumentsContentProvider, indexProvider, cancelIndicator);
+	}
+
+	/**
+	 * The IncrementalBuilder then saves the resources it validated through their IResourceStorageFacade.
+	 */
+	@Override
+	protected BuildRequest newBuildRequest(List<URI> changedFiles, List<URI> deletedFiles, List<IResourceDescription.Delta> externalDeltas, CancelIndicator cancelIndicator) {
+		BuildRequest request = super.newBuildRequest(changedFiles, deletedFiles, externalDeltas, cancelIndicator);
+		request.setWriteStorageResources(true);
+		return request;
+	}
+
+	@Override
+	public Result doInitialBuild(CancelIndicator cancelIndicator) {
+		List<URI> allUris = Lists.newArrayList();
+		for (ISourceFolder srcFolder : getProjectConfig().getSourceFolders()) {
+			allUris.addAll(srcFolder.getAllResources(fileSystemScanner));
+		}
+		return doInitialBuild(allUris, Collections.<URI>emptyList(), cancelIndicator);
+	}
+
+	/**
+	 * Builds the dirty files, and removes the deleted files, starting from the current index state.
+	 * Files of the index state which are affected by these changes are built again as well.
+	 */
+	protected Result doInitialBuild(List<URI> dirtyFiles, List<URI> deletedFiles, CancelIndicator cancelIndicator) {
+		// the source folders contain other files as well (e.g. *.ecore), which no language of the server builds
+		List<URI> buildable = Lists.newArrayList(Iterables.filter(dirtyFiles, this::canHandle));
+		if (threads <= 1 || buildable.size() < threads * 2)
+			return doBuild(dirtyFiles, deletedFiles, Collections.<IResourceDescription.Delta>emptyList(), cancelIndicator);
+
+		long start = System.currentTimeMillis();
+		initializeEPackages();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			ResourceDescriptionsData previousIndex = getIndexState().getResourceDescriptions();
+			ResourceDescriptionsData newIndex = previousIndex.copy();
+			List<IResourceDescription.Delta> deltas = Lists.newArrayList();
+			for (URI deleted : deletedFiles) {
+				IResourceDescription old = previousIndex.getResourceDescription(deleted);
+				if (old != null) {
+					if (canHandle(deleted))
+						deltas.add(getManager(deleted).createDelta(old, null));
+					newIndex.removeDescription(deleted);
+				}
+			}
+
+			// index the dirty files, and then those which are affected by them, until nothing else is;
+			// these deltas of the exported objects only find the affected files, they are not reported
+			Set<URI> toBuild = Sets.newLinkedHashSet(buildable);
+			Collection<URI> toIndex = toBuild;
+			while (!toIndex.isEmpty()) {
+				List<IResourceDescription.Delta> indexDeltas = Lists.newArrayList();
+				for (IResourceDescription description : runInBatches(executor, toIndex, uris -> new IndexBatch(uris, newIndex), cancelIndicator)) {
+					IResourceDescription old = previousIndex.getResourceDescription(description.getURI());
+					newIndex.addDescription(description.getURI(), description);
+					IResourceDescription.Delta delta = getManager(description.getURI()).createDelta(old, description);
+					if (delta.haveEObjectDescriptionsChanged())
+						indexDeltas.add(delta);
+				}
+				toIndex = getAffected(indexDeltas, previousIndex, toBuild, newIndex);
+				toBuild.addAll(toIndex);
+			}
+
+			// link and validate with the complete index
+			IndexState indexState = new IndexState(newIndex, getIndexState().getFileMappings());
+			setIndexState(indexState);
+			for (Built built : runInBatches(executor, toBuild, uris -> new BuildBatch(uris, newIndex), cancelIndicator)) {
+				URI uri = built.description.getURI();
+				newIndex.addDescription(uri, built.description);
+				// one for every built file, with its complete description, as the IncrementalBuilder reports them
+				deltas.add(getManager(uri).createDelta(previousIndex.getResourceDescription(uri), built.description));
+				acceptIssues(uri, built.issues);
+			}
+			logger.info(getProjectDescription().getName() + ": " + toBuild.size() + " files built on " + threads + " threads in " + (System.currentTimeMillis() - start) + "ms");
+
+			// makes the index of the project and the resource set of the ProjectManager current, without building anything
+			Result result = doBuild(Collections.<URI>emptyList(), Collections.<URI>emptyList(), Collections.<IResourceDescription.Delta>emptyList(), cancelIndicator);
+			List<IResourceDescription.Delta> affected = Lists.newArrayList(deltas);
+			affected.addAll(result.getAffectedResources());
+			return new Result(result.getIndexState(), affected);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reports the issues of a file which the parallel initial build validated.
+	 */
+	protected void acceptIssues(URI uri, List<Issue> issues) {
+		issueAcceptor.apply(uri, issues);
+	}
+
+	/**
+	 * Computes what the EClasses of the registered EPackages compute lazily, as all threads of the build share them.
+	 */
+	protected void initializeEPackages() {
+		for (Object ePackage : ImmutableList.copyOf(EPackage.Registry.INSTANCE.values())) {
+			if (ePackage instanceof EPackage)
+				EcoreUtil3.initialize((EPackage) ePackage);
+		}
+	}
+
+	private boolean canHandle(URI uri) {
+		IResourceServiceProvider provider = languagesRegistry.getResourceServiceProvider(uri);
+		return provider != null && provider.canHandle(uri);
+	}
+
+	private IResourceDescription.Manager getManager(URI uri) {
+		return languagesRegistry.getResourceServiceProvider(uri).getResourceDescriptionManager();
+	}
+
+	// the files of previousIndex, which are not built anyway, and which the deltas affect
+	private Set<URI> getAffected(List<IResourceDescription.Delta> deltas, ResourceDescriptionsData previousIndex, Set<URI> toBuild, ResourceDescriptionsData newIndex) {
+		Set<URI> affected = Sets.newLinkedHashSet();
+		if (deltas.isEmpty())
+			return affected;
+		for (IResourceDescription candidate : previousIndex.getAllResourceDescriptions()) {
+			URI uri = candidate.getURI();
+			if (!toBuild.contains(uri) && newIndex.getResourceDescription(uri) != null && canHandle(uri) && getManager(uri).isAffected(deltas, candidate, newIndex))
+				affected.add(uri);
+		}
+		return affected;
+	}
+
+	private <T> List<T> runInBatches(ExecutorService executor, Collection<URI> uris, Function<List<URI>, Callable<List<T>>> batchFactory, CancelIndicator cancelIndicator) {
+		int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, uris.size() / (threads * 4)));
+		List<Future<List<T>>> futures = Lists.newArrayList();
+		for (List<URI> batch : Lists.partition(ImmutableList.copyOf(uris), batchSize)) {
+			futures.add(executor.submit(batchFactory.apply(batch)));
+		}
+		List<T> results = Lists.newArrayListWithCapacity(uris.size());
+		try {
+			for (Future<List<T>> future : futures) {
+				while (!cancelIndicator.isCanceled()) {
+					try {
+						results.addAll(future.get(100, TimeUnit.MILLISECONDS));
+						break;
+					} catch (TimeoutException e) {
+						// check cancellation again
+					}
+				}
+				operationCanceledManager.checkCanceled(cancelIndicator);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			operationCanceledManager.throwOperationCanceledException();
+		} catch (ExecutionException e) {
+			operationCanceledManager.propagateIfCancelException(e.getCause());
+			throw new IllegalStateException("Parallel initial build of " + getProjectDescription().getName() + " failed", e.getCause());
+		} finally {
+			for (Future<List<T>> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Loads files into a fresh resource set, and describes their exported objects only, which is all the index needs to link.
+	 */
+	private class IndexBatch implements Callable<List<IResourceDescription>> {
+		private final List<URI> uris;
+		private final XtextResourceSet resourceSet;
+
+		IndexBatch(List<URI> uris, ResourceDescriptionsData index) {
+			this.uris = uris;
+			// created here, as the index and the workspace index must not be read while the calling thread changes them
+			this.resourceSet = createNewResourceSet(index);
+		}
+
+		@Override
+		public List<IResourceDescription> call() {
+			List<IResourceDescription> descriptions = Lists.newArrayListWithCapacity(uris.size());
+			for (URI uri : uris) {
+				Resource resource = resourceSet.getResource(uri, true);
+				IResourceDescription description = getManager(uri).getResourceDescription(resource);
+				descriptions.add(new ExportedObjectsDescription(uri, description.getExportedObjects()));
+				resource.unload();
+				resourceSet.getResources().remove(resource);
+			}
+			return descriptions;
+		}
+	}
+
+	private static class Built {
+		final IResourceDescription description;
+		final List<Issue> issues;
+
+		Built(IResourceDescription description, List<Issue> issues) {
+			this.description = description;
+			this.issues = issues;
+		}
+	}
+
+	/**
+	 * Loads, links and validates files in a fresh resource set, and describes them completely.
+	 */
+	private class BuildBatch implements Callable<List<Built>> {
+		private final List<URI> uris;
+		private final XtextResourceSet resourceSet;
+
+		BuildBatch(List<URI> uris, ResourceDescriptionsData index) {
+			this.uris = uris;
+			this.resourceSet = createNewResourceSet(index);
+		}
+
+		@Override
+		public List<Built> call() {
+			List<Built> built = Lists.newArrayListWithCapacity(uris.size());
+			for (URI uri : uris) {
+				IResourceServiceProvider serviceProvider = languagesRegistry.getResourceServiceProvider(uri);
+				Resource resource = resourceSet.getResource(uri, true);
+				List<Issue> issues = getProjectConfig().isIndexOnly()
+						? Collections.<Issue>emptyList()
+						: serviceProvider.getResourceValidator().validate(resource, CheckMode.ALL, CancelIndicator.NullImpl);
+				IResourceDescription description = serviceProvider.getResourceDescriptionManager().getResourceDescription(resource);
+				built.add(new Built(SerializableResourceDescription.createCopy(description), issues));
+				// like the IncrementalBuilder does, see newBuildRequest()
+				if (!getProjectConfig().isIndexOnly() && resource instanceof EFactoryResource)
+					((EFactoryResource) resource).saveToStorage();
+			}
+			return built;
+		}
+	}
+
+	/**
+	 * Description of the exported objects of an indexed file, which no longer refers to its resource.
+	 * Its imported names and references are only known once the file is linked.
+	 */
+	private static class ExportedObjectsDescription extends AbstractResourceDescription {
+		private final URI uri;
+		private final List<IEObjectDescription> exportedObjects;
+
+		ExportedObjectsDescription(URI uri, Iterable<IEObjectDescription> exportedObjects) {
+			this.uri = uri;
+			ImmutableList.Builder<IEObjectDescription> copies = ImmutableList.builder();
+			for (IEObjectDescription exported : exportedObjects) {
+				InternalEObject proxy = (InternalEObject) EcoreUtil.create(exported.getEClass());
+				proxy.eSetProxyURI(exported.getEObjectURI());
+				copies.add(EObjectDescription.create(exported.getQualifiedName(), proxy, getUserData(exported)));
+			}
+			this.exportedObjects = copies.build();
+		}
+
+		private static Map<String, String> getUserData(IEObjectDescription exported) {
+			String[] keys = exported.getUserDataKeys();
+			if (keys.length == 0)
+				return null;
+			Map<String, String> userData = Maps.newHashMapWithExpectedSize(keys.length);
+			for (String key : keys) {
+				userData.put(key, exported.getUserData(key));
+			}
+			return userData;
+		}
+
+		@Override
+		protected List<IEObjectDescription> computeExportedObjects() {
+			return exportedObjects;
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+		@Override
+		public Iterable<QualifiedName> getImportedNames() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public Iterable<IReferenceDescription> getReferenceDescriptions() {
+			return Collections.emptyList();
+		}
+	}
+}
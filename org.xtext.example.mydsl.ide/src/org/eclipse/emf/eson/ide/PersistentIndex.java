@@ -0,0 +1,759 @@
+package org.eclipse.emf.eson.ide;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.diagnostics.Severity;
+import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.resource.IReferenceDescription;
+import org.eclipse.xtext.resource.IResourceDescription;
+import org.eclipse.xtext.resource.impl.AbstractResourceDescription;
+import org.eclipse.xtext.validation.CheckType;
+import org.eclipse.xtext.validation.Issue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * On-disk copy of the index (and the issues) of one project of the language server, see PersistentIndexProjectManager.
+ *
+ * The file is read through a memory mapping.  Only the exported objects are decoded when it is loaded, as the
+ * index needs their names; the imported names and references of a resource (which only the incremental builder
+ * needs, to find the resources affected by a change) and its issues are decoded from the mapping when asked for.
+ *
+ * Layout, all strings as int length and UTF-8 bytes (-1 for null):
+ * <pre>
+ * MAGIC VERSION
+ * int n, n fingerprints: key, byte[32] SHA-256 of what the key stands for (see PersistentIndexProjectManager)
+ * int n, n strings: the EClass and EReference URIs, referenced by index below
+ * int n, n resources:
+ *   uri, long lastModified, byte[32] SHA-256 of the content
+ *   int length, exported objects: int n, n * (eObjectURI, eClass index, name segments, user data)
+ *   int length, imported names and references
+ *   int length, issues
+ * END
+ * </pre>
+ * URIs within the resource itself are written as their fragment only.
+ *
+ * The sections of the resources which were not built again are copied from the mapping of the previous index as they
+ * are, without decoding them.  So that their indexes stay valid, the previous string pool is the start of the new one.
+ */
+public class PersistentIndex {
+	private static final Logger logger = Logger.getLogger(PersistentIndex.class);
+
+	private static final int MAGIC = 0x45534958; // ESIX
+	private static final int VERSION = 2;
+	private static final int END = 0x454E4421;
+	private static final int HASH_LENGTH = 32;
+
+	private static final byte NULL_URI = 0;
+	private static final byte LOCAL_URI = 1;
+	private static final byte FULL_URI = 2;
+
+	private final File file;
+
+	// of the index which load() read last
+	private Map<String, byte[]> fingerprints = Collections.emptyMap();
+	private Resolver loaded;
+
+	public PersistentIndex(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * The current state of one file in the index, which write() stores with its description.
+	 */
+	public static class Entry {
+		final IResourceDescription description;
+		final long lastModified;
+		final byte[] hash;
+		final List<Issue> issues;
+		final boolean unchanged;
+
+		public Entry(IResourceDescription description, long lastModified, byte[] hash, List<Issue> issues) {
+			this(description, lastModified, hash, issues, false);
+		}
+
+		/**
+		 * A resource which was not built again: write() copies its description and issues from the index as they are.
+		 */
+		public Entry(PersistedResourceDescription description, long lastModified, byte[] hash) {
+			this(description, lastModified, hash, description.getIssues(), true);
+		}
+
+		private Entry(IResourceDescription description, long lastModified, byte[] hash, List<Issue> issues, boolean unchanged) {
+			this.description = description;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.issues = issues;
+			this.unchanged = unchanged;
+		}
+	}
+
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static byte[] hash(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return digest.digest();
+	}
+
+	// ---- writing
+
+	/**
+	 * Writes the entries to a temporary file, which then replaces the index.  If it cannot be replaced (e.g. on
+	 * Windows, while it is still mapped), the temporary file is left, and load() takes it the next time.
+	 *
+	 * @param fingerprints of what the entries were built against, which load() gives back as getFingerprints()
+	 */
+	public void write(Map<String, byte[]> fingerprints, Iterable<Entry> entries) throws IOException {
+		Map<String, Integer> pool = Maps.newLinkedHashMap();
+		for (Entry entry : entries) {
+			if (isCopied(entry)) {
+				for (String uri : loaded.pool) {
+					pool.put(uri, pool.size());
+				}
+				break;
+			}
+		}
+		int count = 0;
+		for (Entry entry : entries) {
+			count++;
+			if (isCopied(entry))
+				continue;
+			for (IEObjectDescription exported : entry.description.getExportedObjects()) {
+				addToPool(pool, exported.getEClass());
+			}
+			for (IReferenceDescription reference : entry.description.getReferenceDescriptions()) {
+				addToPool(pool, reference.getEReference());
+			}
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs())
+			throw new IOException("Cannot create " + parent);
+		File temp = getTempFile();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(fingerprints.size());
+			for (Map.Entry<String, byte[]> fingerprint : fingerprints.entrySet()) {
+				writeString(out, fingerprint.getKey());
+				out.write(fingerprint.getValue(), 0, HASH_LENGTH);
+			}
+			out.writeInt(pool.size());
+			for (String uri : pool.keySet()) {
+				writeString(out, uri);
+			}
+			out.writeInt(count);
+			ByteArrayOutputStream section = new ByteArrayOutputStream();
+			DataOutputStream sectionOut = new DataOutputStream(section);
+			byte[] copyBuffer = new byte[1 << 16];
+			for (Entry entry : entries) {
+				URI uri = entry.description.getURI();
+				writeString(out, uri.toString());
+				out.writeLong(entry.lastModified);
+				out.write(entry.hash, 0, HASH_LENGTH);
+				if (isCopied(entry)) {
+					copySections(out, (PersistedResourceDescription) entry.description, copyBuffer);
+					continue;
+				}
+
+				List<IEObjectDescription> exportedObjects = Lists.newArrayList(entry.description.getExportedObjects());
+				sectionOut.writeInt(exportedObjects.size());
+				for (IEObjectDescription exported : exportedObjects) {
+					writeURI(sectionOut, exported.getEObjectURI(), uri);
+					sectionOut.writeInt(pool.get(EcoreUtil.getURI(exported.getEClass()).toString()));
+					writeQualifiedName(sectionOut, exported.getQualifiedName());
+					String[] keys = exported.getUserDataKeys();
+					sectionOut.writeInt(keys.length);
+					for (String key : keys) {
+						writeString(sectionOut, key);
+						writeString(sectionOut, exported.getUserData(key));
+					}
+				}
+				writeSection(out, section, sectionOut);
+
+				List<QualifiedName> importedNames = Lists.newArrayList(entry.description.getImportedNames());
+				sectionOut.writeInt(importedNames.size());
+				for (QualifiedName importedName : importedNames) {
+					writeQualifiedName(sectionOut, importedName);
+				}
+				List<IReferenceDescription> references = Lists.newArrayList(entry.description.getReferenceDescriptions());
+				sectionOut.writeInt(references.size());
+				for (IReferenceDescription reference : references) {
+					writeURI(sectionOut, reference.getSourceEObjectUri(), uri);
+					writeURI(sectionOut, reference.getTargetEObjectUri(), uri);
+					writeURI(sectionOut, reference.getContainerEObjectURI(), uri);
+					sectionOut.writeInt(pool.get(EcoreUtil.getURI(reference.getEReference()).toString()));
+					sectionOut.writeInt(reference.getIndexInList());
+				}
+				writeSection(out, section, sectionOut);
+
+				sectionOut.writeInt(entry.issues.size());
+				for (Issue issue : entry.issues) {
+					writeIssue(sectionOut, issue, uri);
+				}
+				writeSection(out, section, sectionOut);
+			}
+			out.writeInt(END);
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			logger.info("Index " + file + " is still in use, " + temp + " replaces it the next time (" + e.getMessage() + ")");
+		}
+	}
+
+	// only from the mapping which load() read last, as the pool indexes in the sections refer to its pool
+	private boolean isCopied(Entry entry) {
+		return entry.unchanged && loaded != null && ((PersistedResourceDescription) entry.description).resolver == loaded;
+	}
+
+	private static void copySections(DataOutputStream out, PersistedResourceDescription description, byte[] copyBuffer) throws IOException {
+		ByteBuffer in = description.buffer.duplicate();
+		in.limit(description.sectionsEnd);
+		in.position(description.sectionsPosition);
+		while (in.hasRemaining()) {
+			int length = Math.min(in.remaining(), copyBuffer.length);
+			in.get(copyBuffer, 0, length);
+			out.write(copyBuffer, 0, length);
+		}
+	}
+
+	private File getTempFile() {
+		return new File(file.getPath() + ".tmp");
+	}
+
+	private static void addToPool(Map<String, Integer> pool, EObject eObject) {
+		String uri = EcoreUtil.getURI(eObject).toString();
+		if (!pool.containsKey(uri))
+			pool.put(uri, pool.size());
+	}
+
+	private static void writeSection(DataOutputStream out, ByteArrayOutputStream section, DataOutputStream sectionOut) throws IOException {
+		sectionOut.flush();
+		out.writeInt(section.size());
+		section.writeTo(out);
+		section.reset();
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static void writeURI(DataOutputStream out, URI uri, URI resourceURI) throws IOException {
+		if (uri == null) {
+			out.writeByte(NULL_URI);
+		} else if (uri.hasFragment() && uri.trimFragment().equals(resourceURI)) {
+			out.writeByte(LOCAL_URI);
+			writeString(out, uri.fragment());
+		} else {
+			out.writeByte(FULL_URI);
+			writeString(out, uri.toString());
+		}
+	}
+
+	private static void writeQualifiedName(DataOutputStream out, QualifiedName name) throws IOException {
+		out.writeInt(name.getSegmentCount());
+		for (String segment : name.getSegments()) {
+			writeString(out, segment);
+		}
+	}
+
+	private static void writeIssue(DataOutputStream out, Issue issue, URI resourceURI) throws IOException {
+		out.writeInt(issue.getSeverity() == null ? -1 : issue.getSeverity().ordinal());
+		out.writeInt(issue.getType() == null ? -1 : issue.getType().ordinal());
+		writeString(out, issue.getCode());
+		writeString(out, issue.getMessage());
+		writeURI(out, issue.getUriToProblem(), resourceURI);
+		writeInteger(out, issue.getLineNumber());
+		writeInteger(out, issue.getColumn());
+		writeInteger(out, issue.getOffset());
+		writeInteger(out, issue.getLength());
+		String[] data = issue.getData();
+		out.writeInt(data == null ? -1 : data.length);
+		if (data != null) {
+			for (String string : data) {
+				writeString(out, string);
+			}
+		}
+	}
+
+	private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null)
+			out.writeInt(value);
+	}
+
+	// ---- reading
+
+	/**
+	 * Loads the index, if there is a complete one of this version.
+	 *
+	 * Resources whose exported objects refer to an EClass which no longer exists are left out, so that they are built again.
+	 *
+	 * @return the persisted descriptions by URI, or an empty map if there is no (usable) index
+	 */
+	public Map<URI, PersistedResourceDescription> load(ResourceSet resourceSet) {
+		fingerprints = Collections.emptyMap();
+		loaded = null;
+		File temp = getTempFile();
+		try {
+			if (temp.isFile() && isComplete(temp))
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			logger.warn("Cannot replace " + file + " by " + temp, e);
+		}
+		if (!file.isFile())
+			return Collections.emptyMap();
+		try {
+			ByteBuffer buffer;
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			if (buffer.limit() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt(buffer.limit() - 4) != END)
+				return Collections.emptyMap();
+			Map<String, byte[]> loadedFingerprints = readFingerprints(buffer);
+			Resolver resolver = new Resolver(resourceSet, readPool(buffer));
+			int count = buffer.getInt();
+			Map<URI, PersistedResourceDescription> descriptions = Maps.newLinkedHashMap();
+			for (int i = 0; i < count; i++) {
+				URI uri = URI.createURI(readString(buffer));
+				long lastModified = buffer.getLong();
+				byte[] hash = new byte[HASH_LENGTH];
+				buffer.get(hash);
+				int sectionsPosition = buffer.position();
+				int exportedLength = buffer.getInt();
+				int exportedEnd = buffer.position() + exportedLength;
+				List<IEObjectDescription> exportedObjects = readExportedObjects(buffer, uri, resolver);
+				buffer.position(exportedEnd);
+				int lazyLength = buffer.getInt();
+				int lazyPosition = buffer.position();
+				buffer.position(lazyPosition + lazyLength);
+				int issuesLength = buffer.getInt();
+				int issuesPosition = buffer.position();
+				buffer.position(issuesPosition + issuesLength);
+				if (exportedObjects != null)
+					descriptions.put(uri, new PersistedResourceDescription(uri, lastModified, hash, exportedObjects, buffer, sectionsPosition, lazyPosition, issuesPosition, buffer.position(), resolver));
+			}
+			fingerprints = loadedFingerprints;
+			loaded = resolver;
+			return descriptions;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Cannot load the index " + file + ", the workspace is built from scratch", e);
+			return Collections.emptyMap();
+		}
+	}
+
+	private static boolean isComplete(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() < 12)
+				return false;
+			ByteBuffer end = ByteBuffer.allocate(4);
+			channel.read(end, channel.size() - 4);
+			end.flip();
+			return end.getInt() == END;
+		}
+	}
+
+	/**
+	 * @return the fingerprints which the index that load() read last was written with, or an empty map if there is no (usable) index
+	 */
+	public Map<String, byte[]> getFingerprints() {
+		return fingerprints;
+	}
+
+	private static Map<String, byte[]> readFingerprints(ByteBuffer buffer) {
+		int size = buffer.getInt();
+		Map<String, byte[]> fingerprints = Maps.newLinkedHashMap();
+		for (int i = 0; i < size; i++) {
+			String key = readString(buffer);
+			byte[] hash = new byte[HASH_LENGTH];
+			buffer.get(hash);
+			fingerprints.put(key, hash);
+		}
+		return fingerprints;
+	}
+
+	private static List<String> readPool(ByteBuffer buffer) {
+		int size = buffer.getInt();
+		List<String> pool = Lists.newArrayListWithCapacity(size);
+		for (int i = 0; i < size; i++) {
+			pool.add(readString(buffer));
+		}
+		return pool;
+	}
+
+	// null if an EClass cannot be resolved anymore
+	private static List<IEObjectDescription> readExportedObjects(ByteBuffer buffer, URI resourceURI, Resolver resolver) {
+		int count = buffer.getInt();
+		ImmutableList.Builder<IEObjectDescription> exportedObjects = ImmutableList.builder();
+		for (int i = 0; i < count; i++) {
+			URI eObjectURI = readURI(buffer, resourceURI);
+			EObject eClass = resolver.resolve(buffer.getInt());
+			QualifiedName name = readQualifiedName(buffer);
+			int userDataCount = buffer.getInt();
+			Map<String, String> userData = userDataCount == 0 ? Collections.<String, String>emptyMap() : Maps.<String, String>newHashMap();
+			for (int j = 0; j < userDataCount; j++) {
+				userData.put(readString(buffer), readString(buffer));
+			}
+			if (!(eClass instanceof EClass))
+				return null;
+			exportedObjects.add(new PersistedEObjectDescription(name, (EClass) eClass, eObjectURI, userData));
+		}
+		return exportedObjects.build();
+	}
+
+	static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static URI readURI(ByteBuffer buffer, URI resourceURI) {
+		byte kind = buffer.get();
+		if (kind == NULL_URI)
+			return null;
+		String string = readString(buffer);
+		return kind == LOCAL_URI ? resourceURI.appendFragment(string) : URI.createURI(string);
+	}
+
+	static QualifiedName readQualifiedName(ByteBuffer buffer) {
+		String[] segments = new String[buffer.getInt()];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = readString(buffer);
+		}
+		return QualifiedName.create(segments);
+	}
+
+	static Issue readIssue(ByteBuffer buffer, URI resourceURI) {
+		Issue.IssueImpl issue = new Issue.IssueImpl();
+		int severity = buffer.getInt();
+		if (severity >= 0)
+			issue.setSeverity(Severity.values()[severity]);
+		int type = buffer.getInt();
+		if (type >= 0)
+			issue.setType(CheckType.values()[type]);
+		issue.setCode(readString(buffer));
+		issue.setMessage(readString(buffer));
+		issue.setUriToProblem(readURI(buffer, resourceURI));
+		issue.setLineNumber(readInteger(buffer));
+		issue.setColumn(readInteger(buffer));
+		issue.setOffset(readInteger(buffer));
+		issue.setLength(readInteger(buffer));
+		int dataLength = buffer.getInt();
+		if (dataLength >= 0) {
+			String[] data = new String[dataLength];
+			for (int i = 0; i < dataLength; i++) {
+				data[i] = readString(buffer);
+			}
+			issue.setData(data);
+		}
+		return issue;
+	}
+
+	private static Integer readInteger(ByteBuffer buffer) {
+		return buffer.get() != 0 ? buffer.getInt() : null;
+	}
+
+	/**
+	 * Resolves the EClass and EReference URIs of the pool, from the EPackage registry or else the ResourceSet, once each.
+	 */
+	static class Resolver {
+		private final ResourceSet resourceSet;
+		private final List<String> pool;
+		private final EObject[] resolved;
+		private final boolean[] isResolved;
+
+		Resolver(ResourceSet resourceSet, List<String> pool) {
+			this.resourceSet = resourceSet;
+			this.pool = pool;
+			this.resolved = new EObject[pool.size()];
+			this.isResolved = new boolean[pool.size()];
+		}
+
+		synchronized EObject resolve(int index) {
+			if (!isResolved[index]) {
+				resolved[index] = resolve(URI.createURI(pool.get(index)));
+				isResolved[index] = true;
+			}
+			return resolved[index];
+		}
+
+		private EObject resolve(URI uri) {
+			try {
+				EPackage ePackage = resourceSet.getPackageRegistry().getEPackage(uri.trimFragment().toString());
+				if (ePackage != null && ePackage.eResource() != null)
+					return ePackage.eResource().getEObject(uri.fragment());
+				return resourceSet.getEObject(uri, true);
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * IResourceDescription of a resource in the persisted index, which decodes its imported names and references when first asked for.
+	 */
+	public static class PersistedResourceDescription extends AbstractResourceDescription {
+		private final URI uri;
+		private final long lastModified;
+		private final byte[] hash;
+		private final List<IEObjectDescription> exportedObjects;
+		private final ByteBuffer buffer;
+		private final int sectionsPosition;
+		private final int lazyPosition;
+		private final int issuesPosition;
+		private final int sectionsEnd;
+		private final Resolver resolver;
+
+		private List<QualifiedName> importedNames;
+		private List<IReferenceDescription> references;
+
+		PersistedResourceDescription(URI uri, long lastModified, byte[] hash, List<IEObjectDescription> exportedObjects, ByteBuffer buffer, int sectionsPosition, int lazyPosition, int issuesPosition,
+				int sectionsEnd, Resolver resolver) {
+			this.uri = uri;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.exportedObjects = exportedObjects;
+			this.buffer = buffer;
+			this.sectionsPosition = sectionsPosition;
+			this.lazyPosition = lazyPosition;
+			this.issuesPosition = issuesPosition;
+			this.sectionsEnd = sectionsEnd;
+			this.resolver = resolver;
+		}
+
+		@Override
+		protected List<IEObjectDescription> computeExportedObjects() {
+			return exportedObjects;
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public boolean hasHash(byte[] otherHash) {
+			return Arrays.equals(hash, otherHash);
+		}
+
+		byte[] getHash() {
+			return hash;
+		}
+
+		@Override
+		public synchronized Iterable<QualifiedName> getImportedNames() {
+			if (importedNames == null)
+				decode();
+			return importedNames;
+		}
+
+		@Override
+		public synchronized Iterable<IReferenceDescription> getReferenceDescriptions() {
+			if (references == null)
+				decode();
+			return references;
+		}
+
+		private void decode() {
+			// a duplicate, as the position of the shared buffer must not change
+			ByteBuffer in = buffer.duplicate();
+			in.position(lazyPosition);
+			int importedCount = in.getInt();
+			List<QualifiedName> names = Lists.newArrayListWithCapacity(importedCount);
+			for (int i = 0; i < importedCount; i++) {
+				names.add(readQualifiedName(in));
+			}
+			int referenceCount = in.getInt();
+			List<IReferenceDescription> referenceDescriptions = Lists.newArrayListWithCapacity(referenceCount);
+			for (int i = 0; i < referenceCount; i++) {
+				URI source = readURI(in, uri);
+				URI target = readURI(in, uri);
+				URI container = readURI(in, uri);
+				EObject eReference = resolver.resolve(in.getInt());
+				int indexInList = in.getInt();
+				// an EReference which no longer exists does not make the resource affected by anything
+				if (eReference instanceof EReference)
+					referenceDescriptions.add(new PersistedReferenceDescription(source, target, container, (EReference) eReference, indexInList));
+			}
+			importedNames = ImmutableList.copyOf(names);
+			references = ImmutableList.copyOf(referenceDescriptions);
+		}
+
+		public List<Issue> getIssues() {
+			ByteBuffer in = buffer.duplicate();
+			in.position(issuesPosition);
+			int count = in.getInt();
+			List<Issue> issues = Lists.newArrayListWithCapacity(count);
+			for (int i = 0; i < count; i++) {
+				issues.add(readIssue(in, uri));
+			}
+			return issues;
+		}
+	}
+
+	private static class PersistedEObjectDescription implements IEObjectDescription {
+		private final QualifiedName name;
+		private final EClass eClass;
+		private final URI eObjectURI;
+		private final Map<String, String> userData;
+		private EObject proxy;
+
+		PersistedEObjectDescription(QualifiedName name, EClass eClass, URI eObjectURI, Map<String, String> userData) {
+			this.name = name;
+			this.eClass = eClass;
+			this.eObjectURI = eObjectURI;
+			this.userData = userData.isEmpty() ? userData : ImmutableMap.copyOf(userData);
+		}
+
+		@Override
+		public QualifiedName getName() {
+			return name;
+		}
+
+		@Override
+		public QualifiedName getQualifiedName() {
+			return name;
+		}
+
+		@Override
+		public synchronized EObject getEObjectOrProxy() {
+			if (proxy == null) {
+				InternalEObject newProxy = (InternalEObject) EcoreUtil.create(eClass);
+				newProxy.eSetProxyURI(eObjectURI);
+				proxy = newProxy;
+			}
+			return proxy;
+		}
+
+		@Override
+		public URI getEObjectURI() {
+			return eObjectURI;
+		}
+
+		@Override
+		public EClass getEClass() {
+			return eClass;
+		}
+
+		@Override
+		public String getUserData(String key) {
+			return userData.get(key);
+		}
+
+		@Override
+		public String[] getUserDataKeys() {
+			Set<String> keys = userData.keySet();
+			return keys.toArray(new String[keys.size()]);
+		}
+
+		@Override
+		public String toString() {
+			return name + " (" + eClass.getName() + ") " + eObjectURI;
+		}
+	}
+
+	private static class PersistedReferenceDescription implements IReferenceDescription {
+		private final URI sourceEObjectUri;
+		private final URI targetEObjectUri;
+		private final URI containerEObjectURI;
+		private final EReference eReference;
+		private final int indexInList;
+
+		PersistedReferenceDescription(URI sourceEObjectUri, URI targetEObjectUri, URI containerEObjectURI, EReference eReference, int indexInList) {
+			this.sourceEObjectUri = sourceEObjectUri;
+			this.targetEObjectUri = targetEObjectUri;
+			this.containerEObjectURI = containerEObjectURI;
+			this.eReference = eReference;
+			this.indexInList = indexInList;
+		}
+
+		@Override
+		public URI getSourceEObjectUri() {
+			return sourceEObjectUri;
+		}
+
+		@Override
+		public URI getTargetEObjectUri() {
+			return targetEObjectUri;
+		}
+
+		@Override
+		public URI getContainerEObjectURI() {
+			return containerEObjectURI;
+		}
+
+		@Override
+		public EReference getEReference() {
+			return eReference;
+		}
+
+		@Override
+		public int getIndexInList() {
+			return indexInList;
+		}
+	}
+}
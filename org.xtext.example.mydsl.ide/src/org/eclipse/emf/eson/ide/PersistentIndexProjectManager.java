@@ -0,0 +1,336 @@
+package org.eclipse.emf.eson.ide;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.ETypedElement;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.build.BuildRequest;
+import org.eclipse.xtext.build.BuildRequest.IPostValidationCallback;
+import org.eclipse.xtext.build.IncrementalBuilder.Result;
+import org.eclipse.xtext.build.IndexState;
+import org.eclipse.xtext.build.Source2GeneratedMapping;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.resource.IExternalContentSupport.IExternalContentProvider;
+import org.eclipse.xtext.resource.IResourceDescription;
+import org.eclipse.xtext.resource.impl.ProjectDescription;
+import org.eclipse.xtext.resource.impl.ResourceDescriptionsData;
+import org.eclipse.xtext.util.CancelIndicator;
+import org.eclipse.xtext.validation.Issue;
+import org.eclipse.xtext.workspace.IProjectConfig;
+import org.eclipse.xtext.workspace.ISourceFolder;
+import org.eclipse.xtext.workspace.IWorkspaceConfig;
+import org.eclipse.xtext.xbase.lib.Procedures.Procedure2;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.BaseEncoding;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+
+/**
+ * ProjectManager whose initial build starts from the index persisted by the previous run of the language server.
+ *
+ * Only the files which are new, or whose timestamp changed and whose content hash differs, are built again (plus,
+ * as usual, the files affected by them); files which were deleted since are removed.  The issues of the files which
+ * are not built again are published from the persisted index.  The index is written after each initial build
+ * (which the ParallelBuildProjectManager builds in parallel) that changed anything.
+ *
+ * The index also keeps fingerprints of what its files were built against: the index of each dependency project
+ * (which the WorkspaceManager builds before this project), the EPackages of the global registry, and the *.ecore
+ * files in the source folders of this project and of its dependencies.  If any of these changed, all files are
+ * built again.
+ */
+public class PersistentIndexProjectManager extends ParallelBuildProjectManager {
+	private static final Logger logger = Logger.getLogger(PersistentIndexProjectManager.class);
+
+	/**
+	 * Guice @Named key of the directory of the persisted indexes; by default, eson/lsindex/&lt;hash of the base directory of the
+	 * workspace&gt;/ in the user's cache directory ($XDG_CACHE_HOME, or else ~/.cache), so that nothing is written into the workspace.
+	 */
+	public static final String INDEX_DIRECTORY_KEY = "eson.lsIndex.directory";
+
+	private static final String DEFAULT_INDEX_DIRECTORY = "eson/lsindex";
+	private static final String FILE_EXTENSION = ".lsindex";
+
+	private static final String PROJECT_FINGERPRINT = "project:";
+	private static final String METAMODEL_FINGERPRINT = "metamodel:";
+	private static final String REGISTRY_FINGERPRINT = "registry";
+
+	@Inject(optional = true) @Named(INDEX_DIRECTORY_KEY)
+	private String indexDirectory;
+
+	// only set during the initial build
+	private Map<URI, List<Issue>> validatedIssues;
+
+	private Provider<Map<String, ResourceDescriptionsData>> workspaceIndex;
+
+	@Override
+	public void initialize(ProjectDescription description, IProjectConfig projectConfig, Procedure2<? super URI, ? super Iterable<Issue>> acceptor,
+			IExternalContentProvider openedDocumentsContentProvider, Provider<Map<String, ResourceDescriptionsData>> indexProvider, CancelIndicator cancelIndicator) {
+		this.workspaceIndex = indexProvider;
+		super.initialize(description, projectConfig, acceptor, openedDocumentsContentProvider, indexProvider, cancelIndicator);
+	}
+
+	@Override
+	public Result doInitialBuild(CancelIndicator cancelIndicator) {
+		PersistentIndex index = getPersistentIndex();
+		if (index == null)
+			return super.doInitialBuild(cancelIndicator);
+
+		List<URI> allUris = Lists.newArrayList();
+		for (ISourceFolder srcFolder : getProjectConfig().getSourceFolders()) {
+			allUris.addAll(srcFolder.getAllResources(fileSystemScanner));
+		}
+		Map<String, byte[]> fingerprints;
+		try {
+			fingerprints = getFingerprints(allUris);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Cannot take the fingerprints of " + getProjectDescription().getName() + ", it is built from scratch", e);
+			return super.doInitialBuild(cancelIndicator);
+		}
+
+		Map<URI, PersistentIndex.PersistedResourceDescription> persisted = index.load(resourceSetProvider.get());
+		boolean fingerprintsChanged = !persisted.isEmpty() && !isSameFingerprints(index.getFingerprints(), fingerprints);
+		Map<URI, PersistentIndex.Entry> clean = Maps.newLinkedHashMap();
+		List<URI> dirty = Lists.newArrayList();
+		int touched = 0;
+		for (URI uri : allUris) {
+			PersistentIndex.PersistedResourceDescription description = persisted.get(uri);
+			PersistentIndex.Entry entry = fingerprintsChanged ? null : getCleanEntry(uri, description);
+			if (entry != null) {
+				clean.put(uri, entry);
+				if (entry.lastModified != description.getLastModified())
+					touched++;
+			} else {
+				dirty.add(uri);
+			}
+		}
+		List<URI> deleted = Lists.newArrayList(Sets.difference(persisted.keySet(), clean.keySet()));
+		deleted.removeAll(dirty);
+		logger.info(getProjectDescription().getName() + ": " + clean.size() + " files from " + index.getFile() + ", " + dirty.size() + " to build, " + deleted.size() + " deleted"
+				+ (fingerprintsChanged ? " (dependencies or metamodels changed)" : ""));
+		// then the build changes nothing, and the index on disk is already what write() would write
+		boolean unchanged = !persisted.isEmpty() && !fingerprintsChanged && dirty.isEmpty() && deleted.isEmpty() && touched == 0;
+
+		// also the changed and deleted files, so that the build finds the files which their changes affect
+		setIndexState(new IndexState(new ResourceDescriptionsData(ImmutableList.<IResourceDescription>copyOf(persisted.values())), new Source2GeneratedMapping()));
+		for (PersistentIndex.Entry entry : clean.values()) {
+			acceptIssues(entry.description.getURI(), entry.issues);
+		}
+
+		validatedIssues = Maps.newHashMap();
+		Result result;
+		try {
+			result = doInitialBuild(dirty, deleted, cancelIndicator);
+			if (!cancelIndicator.isCanceled() && !unchanged)
+				write(index, fingerprints, clean, validatedIssues);
+		} finally {
+			validatedIssues = null;
+		}
+		return result;
+	}
+
+	// null if the file has to be built again
+	private PersistentIndex.Entry getCleanEntry(URI uri, PersistentIndex.PersistedResourceDescription description) {
+		if (description == null || !uri.isFile())
+			return null;
+		File file = new File(uri.toFileString());
+		long lastModified = file.lastModified();
+		if (lastModified == 0L)
+			return null;
+		try {
+			if (lastModified == description.getLastModified())
+				return new PersistentIndex.Entry(description, lastModified, description.getHash());
+			// only touched (e.g. by a checkout), so only its timestamp changes in the index
+			byte[] hash = PersistentIndex.hash(file);
+			if (description.hasHash(hash))
+				return new PersistentIndex.Entry(description, lastModified, hash);
+		} catch (IOException | RuntimeException e) {
+			logger.debug("Building " + uri + " again", e);
+		}
+		return null;
+	}
+
+	private static boolean isSameFingerprints(Map<String, byte[]> persisted, Map<String, byte[]> current) {
+		if (!persisted.keySet().equals(current.keySet()))
+			return false;
+		for (Map.Entry<String, byte[]> fingerprint : current.entrySet()) {
+			if (!Arrays.equals(persisted.get(fingerprint.getKey()), fingerprint.getValue()))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Fingerprints of what the files of this project are built against, besides their own content, by key: the index of each
+	 * dependency, the *.ecore files among the files of this project (allUris) and of its dependencies, and the EPackages of
+	 * the global registry.
+	 */
+	protected Map<String, byte[]> getFingerprints(List<URI> allUris) throws IOException {
+		Map<String, byte[]> fingerprints = Maps.newTreeMap();
+		Map<String, ResourceDescriptionsData> index = workspaceIndex.get();
+		List<URI> metamodels = Lists.newArrayList(allUris);
+		IWorkspaceConfig workspaceConfig = getProjectConfig().getWorkspaceConfig();
+		for (String dependency : getProjectDescription().getDependencies()) {
+			fingerprints.put(PROJECT_FINGERPRINT + dependency, hash(index.get(dependency)));
+			IProjectConfig dependencyConfig = workspaceConfig == null ? null : workspaceConfig.findProjectByName(dependency);
+			if (dependencyConfig != null) {
+				for (ISourceFolder srcFolder : dependencyConfig.getSourceFolders()) {
+					metamodels.addAll(srcFolder.getAllResources(fileSystemScanner));
+				}
+			}
+		}
+		for (URI uri : metamodels) {
+			if ("ecore".equals(uri.fileExtension()) && uri.isFile())
+				fingerprints.put(METAMODEL_FINGERPRINT + uri, PersistentIndex.hash(new File(uri.toFileString())));
+		}
+		fingerprints.put(REGISTRY_FINGERPRINT, hashRegistry());
+		return fingerprints;
+	}
+
+	// the exported objects of the index, which is what the files of a dependent project link against
+	private static byte[] hash(ResourceDescriptionsData index) {
+		MessageDigest digest = PersistentIndex.newDigest();
+		if (index != null) {
+			List<IResourceDescription> descriptions = Lists.newArrayList(index.getAllResourceDescriptions());
+			descriptions.sort(Comparator.comparing((IResourceDescription description) -> description.getURI().toString()));
+			for (IResourceDescription description : descriptions) {
+				update(digest, description.getURI().toString());
+				for (IEObjectDescription exported : description.getExportedObjects()) {
+					update(digest, exported.getEObjectURI().toString());
+					update(digest, EcoreUtil.getURI(exported.getEClass()).toString());
+					update(digest, exported.getQualifiedName().toString());
+					String[] keys = exported.getUserDataKeys().clone();
+					Arrays.sort(keys);
+					for (String key : keys) {
+						update(digest, key);
+						update(digest, exported.getUserData(key));
+					}
+				}
+			}
+		}
+		return digest.digest();
+	}
+
+	// the structure of the EPackages of the global registry; those which are not loaded yet (descriptors) only by their nsURI
+	private static byte[] hashRegistry() {
+		MessageDigest digest = PersistentIndex.newDigest();
+		List<String> nsURIs = Lists.newArrayList(Iterables.filter(ImmutableList.copyOf(EPackage.Registry.INSTANCE.keySet()), Predicates.notNull()));
+		Collections.sort(nsURIs);
+		for (String nsURI : nsURIs) {
+			update(digest, nsURI);
+			Object ePackage = EPackage.Registry.INSTANCE.get(nsURI);
+			if (ePackage instanceof EPackage) {
+				for (Iterator<EObject> contents = ((EPackage) ePackage).eAllContents(); contents.hasNext();) {
+					update(digest, contents.next());
+				}
+			}
+		}
+		return digest.digest();
+	}
+
+	private static void update(MessageDigest digest, EObject element) {
+		update(digest, EcoreUtil.getURI(element).toString());
+		if (element instanceof ETypedElement) {
+			ETypedElement typedElement = (ETypedElement) element;
+			update(digest, typedElement.getEType() == null ? null : EcoreUtil.getURI(typedElement.getEType()).toString());
+			update(digest, typedElement.getLowerBound() + ".." + typedElement.getUpperBound());
+		}
+		if (element instanceof EReference)
+			update(digest, String.valueOf(((EReference) element).isContainment()));
+		if (element instanceof EClass) {
+			update(digest, String.valueOf(((EClass) element).isAbstract()));
+			for (EClass superType : ((EClass) element).getESuperTypes()) {
+				update(digest, EcoreUtil.getURI(superType).toString());
+			}
+		}
+	}
+
+	private static void update(MessageDigest digest, String string) {
+		digest.update(String.valueOf(string).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private void write(PersistentIndex index, Map<String, byte[]> fingerprints, Map<URI, PersistentIndex.Entry> clean, Map<URI, List<Issue>> issues) {
+		try {
+			List<PersistentIndex.Entry> entries = Lists.newArrayList();
+			for (IResourceDescription description : getIndexState().getResourceDescriptions().getAllResourceDescriptions()) {
+				URI uri = description.getURI();
+				PersistentIndex.Entry cleanEntry = clean.get(uri);
+				if (cleanEntry != null && cleanEntry.description == description) {
+					entries.add(cleanEntry);
+				} else if (uri.isFile()) {
+					File file = new File(uri.toFileString());
+					List<Issue> fileIssues = issues.get(uri);
+					if (fileIssues == null && cleanEntry != null)
+						fileIssues = cleanEntry.issues;
+					entries.add(new PersistentIndex.Entry(description, file.lastModified(), PersistentIndex.hash(file),
+							fileIssues != null ? fileIssues : Collections.<Issue>emptyList()));
+				}
+			}
+			index.write(fingerprints, entries);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Cannot write the index " + index.getFile(), e);
+		}
+	}
+
+	/**
+	 * @return the persisted index of this project, or null if it cannot have one (its base directory is not a local directory)
+	 */
+	protected PersistentIndex getPersistentIndex() {
+		File directory;
+		if (indexDirectory != null && !indexDirectory.isEmpty()) {
+			directory = new File(indexDirectory);
+		} else {
+			URI baseDir = getBaseDir();
+			if (baseDir == null || !baseDir.isFile())
+				return null;
+			String cacheHome = System.getenv("XDG_CACHE_HOME");
+			File cache = cacheHome != null && !cacheHome.isEmpty() ? new File(cacheHome) : new File(System.getProperty("user.home"), ".cache");
+			byte[] workspace = PersistentIndex.newDigest().digest(baseDir.toString().getBytes(StandardCharsets.UTF_8));
+			directory = new File(new File(cache, DEFAULT_INDEX_DIRECTORY), BaseEncoding.base16().lowerCase().encode(workspace, 0, 8));
+		}
+		return new PersistentIndex(new File(directory, getProjectDescription().getName() + FILE_EXTENSION));
+	}
+
+	@Override
+	protected void acceptIssues(URI uri, List<Issue> issues) {
+		if (validatedIssues != null)
+			validatedIssues.put(uri, issues);
+		super.acceptIssues(uri, issues);
+	}
+
+	@Override
+	protected BuildRequest newBuildRequest(List<URI> changedFiles, List<URI> deletedFiles, List<IResourceDescription.Delta> externalDeltas, CancelIndicator cancelIndicator) {
+		BuildRequest request = super.newBuildRequest(changedFiles, deletedFiles, externalDeltas, cancelIndicator);
+		final Map<URI, List<Issue>> issues = validatedIssues;
+		if (issues != null) {
+			final IPostValidationCallback afterValidate = request.getAfterValidate();
+			request.setAfterValidate((URI uri, Iterable<Issue> uriIssues) -> {
+				issues.put(uri, ImmutableList.copyOf(uriIssues));
+				return afterValidate.afterValidate(uri, uriIssues);
+			});
+		}
+		return request;
+	}
+}
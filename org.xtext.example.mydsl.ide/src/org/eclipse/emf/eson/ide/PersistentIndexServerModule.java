@@ -0,0 +1,16 @@
+package org.eclipse.emf.eson.ide;
+
+import org.eclipse.xtext.ide.server.ProjectManager;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * Overrides for the ServerModule, so that the language server keeps its index on disk, and builds in parallel initially;
+ * see PersistentIndexProjectManager and ParallelBuildProjectManager.
+ */
+public final class PersistentIndexServerModule extends AbstractModule {
+	@Override
+	protected void configure() {
+		bind(ProjectManager.class).to(PersistentIndexProjectManager.class);
+	}
+}
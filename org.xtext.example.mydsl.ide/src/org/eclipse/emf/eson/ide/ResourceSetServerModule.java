@@ -0,0 +1,17 @@
+package org.eclipse.emf.eson.ide;
+
+import org.eclipse.emf.eson.resource.EFactoryResourceSet;
+import org.eclipse.xtext.resource.XtextResourceSet;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * Override for the ServerModule, so that the ResourceSets of the language server are EFactoryResourceSet, as in the runtime;
+ * those of the ProjectManager come from the ServerModule's injector, not from that of the language.
+ */
+public final class ResourceSetServerModule extends AbstractModule {
+	@Override
+	protected void configure() {
+		bind(XtextResourceSet.class).to(EFactoryResourceSet.class);
+	}
+}
@@ -9,6 +9,7 @@ package org.eclipse.emf.eson.ide
 
 import com.google.inject.Guice
 import com.google.inject.Inject
+import com.google.inject.util.Modules
 import java.io.ByteArrayInputStream
 import java.io.ByteArrayOutputStream
 import java.io.FileOutputStream
@@ -35,7 +36,7 @@ class ServerLauncher {
 		val stdin = System.in
 		val stdout = System.out
 		redirectStandardStreams()
-		val launcher = Guice.createInjector(new ServerModule()).getInstance(ServerLauncher)
+		val launcher = Guice.createInjector(Modules.override(new ServerModule()).with(new PersistentIndexServerModule(), new ResourceSetServerModule())).getInstance(ServerLauncher)
 		launcher.start(stdin, stdout)
 	}
 
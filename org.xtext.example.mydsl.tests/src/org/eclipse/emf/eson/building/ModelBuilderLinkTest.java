@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.building;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.emf.eson.EFactoryStandaloneSetup;
+import org.eclipse.emf.eson.resource.EFactoryResource;
+import org.eclipse.xtext.resource.IResourceFactory;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.eclipse.xtext.util.StringInputStream;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Injector;
+
+/**
+ * Tests that ModelBuilder.link() resolves all references to one target to that one EObject, instead of a proxy each.
+ */
+public class ModelBuilderLinkTest {
+
+	private static final String MODEL = "use \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+			+ "EPackage test {\n"
+			+ "\tnsURI: \"http://test\"\n"
+			+ "\teClassifiers: [\n"
+			+ "\t\tEClass A { }\n"
+			+ "\t\tEClass B { eSuperTypes: [ test.A ] }\n"
+			+ "\t\tEClass C { eSuperTypes: [ test.A ] }\n"
+			+ "\t\tEClass D { eSuperTypes: [ test.A ] }\n"
+			+ "\t]\n"
+			+ "}\n";
+
+	private EFactoryResource resource;
+
+	@Before
+	public void setUp() throws IOException {
+		Injector injector = new EFactoryStandaloneSetup().createInjectorAndDoEMFRegistration();
+		XtextResourceSet resourceSet = injector.getInstance(XtextResourceSet.class);
+		resource = (EFactoryResource) injector.getInstance(IResourceFactory.class).createResource(URI.createURI("test.mydsl"));
+		resourceSet.getResources().add(resource);
+		resource.load(new StringInputStream(MODEL), null);
+		resource.installDerivedState(false);
+	}
+
+	@Test
+	public void testReferencesShareTheirTarget() {
+		EPackage ePackage = (EPackage) EFactoryResource.getEFactoryEObject(resource);
+		EClass a = (EClass) ePackage.getEClassifiers().get(0);
+		for (EClassifier eClassifier : ePackage.getEClassifiers().subList(1, 4)) {
+			// without resolving, so a proxy per reference would show here
+			EObject superType = ((InternalEList<EClass>) ((EClass) eClassifier).getESuperTypes()).basicGet(0);
+			assertFalse(eClassifier.getName(), superType.eIsProxy());
+			assertSame(eClassifier.getName(), a, superType);
+		}
+		assertEquals(1, ((EClass) ePackage.getEClassifiers().get(3)).getESuperTypes().size());
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.ide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.xtext.build.IncrementalBuilder.Result;
+import org.eclipse.xtext.ide.server.ServerModule;
+import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.resource.IExternalContentSupport.IExternalContentProvider;
+import org.eclipse.xtext.resource.IReferenceDescription;
+import org.eclipse.xtext.resource.IResourceDescription;
+import org.eclipse.xtext.resource.IResourceServiceProvider;
+import org.eclipse.xtext.resource.impl.ProjectDescription;
+import org.eclipse.xtext.resource.impl.ResourceDescriptionsData;
+import org.eclipse.xtext.util.CancelIndicator;
+import org.eclipse.xtext.util.UriUtil;
+import org.eclipse.xtext.validation.Issue;
+import org.eclipse.xtext.workspace.FileProjectConfig;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+
+/**
+ * Tests that the parallel initial build of ParallelBuildProjectManager has the same result as that of the IncrementalBuilder.
+ */
+public class ParallelBuildProjectManagerTest {
+
+	private static final int FILES = 8;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUpLanguage() {
+		new EFactoryIdeSetup().createInjectorAndDoEMFRegistration();
+	}
+
+	@Test
+	public void testSameAsIncrementalBuilder() throws IOException {
+		File src = folder.newFolder("src");
+		for (int i = 0; i < FILES; i++) {
+			// each file extends the EClass of the previous one, and the first one refers to one which does not exist
+			String superType = i == 0 ? "missing.Missing" : "p" + (i - 1) + ".A" + (i - 1);
+			String model = "use \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+					+ "EPackage p" + i + " {\n"
+					+ "\tnsURI: \"http://p" + i + "\"\n"
+					+ "\teClassifiers: [\n"
+					+ "\t\tEClass A" + i + " { eSuperTypes: [ " + superType + " ] }\n"
+					+ "\t]\n"
+					+ "}\n";
+			Files.write(new File(src, "p" + i + ".mydsl").toPath(), model.getBytes(StandardCharsets.UTF_8));
+		}
+
+		Build incremental = build(1);
+		Build parallel = build(4);
+
+		assertEquals(FILES, incremental.index.size());
+		assertEquals(incremental.index, parallel.index);
+		assertEquals(FILES, incremental.deltas.size());
+		assertEquals(incremental.deltas, parallel.deltas);
+		assertEquals(incremental.issues, parallel.issues);
+		assertFalse(incremental.issues.get("p0.mydsl").isEmpty());
+		assertTrue(incremental.issues.get("p1.mydsl").isEmpty());
+	}
+
+	// the index, the new descriptions of the deltas and the issues of an initial build, all by file name
+	private Build build(int threads) {
+		Injector injector = Guice.createInjector(Modules.override(new ServerModule()).with(new ResourceSetServerModule(), binder -> {
+			binder.bind(IResourceServiceProvider.Registry.class).toInstance(IResourceServiceProvider.Registry.INSTANCE);
+			binder.bind(Integer.class).annotatedWith(Names.named(ParallelBuildProjectManager.THREADS_KEY)).toInstance(threads);
+		}));
+		ParallelBuildProjectManager manager = injector.getInstance(ParallelBuildProjectManager.class);
+		FileProjectConfig projectConfig = new FileProjectConfig(UriUtil.createFolderURI(folder.getRoot()), "test");
+		projectConfig.addSourceFolder("src");
+		ProjectDescription description = new ProjectDescription();
+		description.setName("test");
+		Map<String, ResourceDescriptionsData> workspaceIndex = Maps.newHashMap();
+		Build build = new Build();
+		manager.initialize(description, projectConfig, (URI uri, Iterable<Issue> issues) -> build.issues.put(uri.lastSegment(), describe(issues)),
+				new NoExternalContent(), () -> workspaceIndex, CancelIndicator.NullImpl);
+
+		Result result = manager.doInitialBuild(CancelIndicator.NullImpl);
+		for (IResourceDescription resourceDescription : result.getIndexState().getResourceDescriptions().getAllResourceDescriptions()) {
+			build.index.put(resourceDescription.getURI().lastSegment(), describe(resourceDescription));
+		}
+		for (IResourceDescription.Delta delta : result.getAffectedResources()) {
+			build.deltas.put(delta.getUri().lastSegment(), describe(delta.getNew()));
+		}
+		return build;
+	}
+
+	private static List<String> describe(IResourceDescription description) {
+		List<String> lines = Lists.newArrayList();
+		if (description == null)
+			return lines;
+		for (IEObjectDescription exported : description.getExportedObjects()) {
+			lines.add("exports " + exported.getQualifiedName() + " " + exported.getEClass().getName() + " " + exported.getEObjectURI().fragment());
+		}
+		for (QualifiedName importedName : description.getImportedNames()) {
+			lines.add("imports " + importedName);
+		}
+		for (IReferenceDescription reference : description.getReferenceDescriptions()) {
+			lines.add("refers " + reference.getSourceEObjectUri().fragment() + " " + reference.getEReference().getName() + "[" + reference.getIndexInList() + "] "
+					+ reference.getTargetEObjectUri());
+		}
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private static List<String> describe(Iterable<Issue> issues) {
+		List<String> lines = Lists.newArrayList();
+		for (Issue issue : issues) {
+			lines.add(issue.getSeverity() + " " + issue.getLineNumber() + ":" + issue.getOffset() + " " + issue.getCode() + " " + issue.getMessage());
+		}
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private static class Build {
+		final Map<String, List<String>> index = Maps.newTreeMap();
+		final Map<String, List<String>> deltas = Maps.newTreeMap();
+		final Map<String, List<String>> issues = Maps.newTreeMap();
+	}
+
+	private static class NoExternalContent implements IExternalContentProvider {
+		@Override
+		public String getContent(URI uri) {
+			return null;
+		}
+
+		@Override
+		public boolean hasContent(URI uri) {
+			return false;
+		}
+
+		@Override
+		public IExternalContentProvider getActualContentProvider() {
+			return this;
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.ide;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.xtext.diagnostics.Severity;
+import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.resource.EObjectDescription;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.resource.IReferenceDescription;
+import org.eclipse.xtext.resource.impl.AbstractResourceDescription;
+import org.eclipse.xtext.validation.CheckType;
+import org.eclipse.xtext.validation.Issue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests that PersistentIndex loads what it wrote.
+ */
+public class PersistentIndexTest {
+
+	private static final URI RESOURCE = URI.createURI("file:/ws/a/test.eson");
+	private static final URI OTHER = URI.createURI("file:/ws/b/other.eson");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PersistentIndex index;
+	private byte[] hash;
+
+	@Before
+	public void setUp() throws IOException {
+		index = new PersistentIndex(new File(folder.getRoot(), "a.lsindex"));
+		hash = new byte[32];
+		Arrays.fill(hash, (byte) 7);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Issue.IssueImpl issue = new Issue.IssueImpl();
+		issue.setSeverity(Severity.WARNING);
+		issue.setType(CheckType.FAST);
+		issue.setCode("code");
+		issue.setMessage("message");
+		issue.setUriToProblem(RESOURCE.appendFragment("/1"));
+		issue.setLineNumber(3);
+		issue.setOffset(42);
+		issue.setData(new String[] { "data", null });
+		TestResourceDescription description = new TestResourceDescription(RESOURCE,
+				Collections.singletonList(EObjectDescription.create(QualifiedName.create("a", "b"), proxy(EcorePackage.Literals.ECLASS, RESOURCE.appendFragment("/1")),
+						ImmutableMap.of("key", "value"))),
+				Collections.singletonList(QualifiedName.create("x", "y")),
+				Collections.<IReferenceDescription>singletonList(new TestReferenceDescription(RESOURCE.appendFragment("/1"), OTHER.appendFragment("/0"),
+						RESOURCE.appendFragment("/0"), EcorePackage.Literals.ECLASS__ESUPER_TYPES, 2)));
+		Map<String, byte[]> fingerprints = Maps.newTreeMap();
+		fingerprints.put("project:b", hash);
+		index.write(fingerprints, Collections.singletonList(new PersistentIndex.Entry(description, 1234L, hash, Collections.<Issue>singletonList(issue))));
+
+		Map<URI, PersistentIndex.PersistedResourceDescription> loaded = index.load(new ResourceSetImpl());
+		assertEquals(Collections.singleton("project:b"), index.getFingerprints().keySet());
+		assertArrayEquals(hash, index.getFingerprints().get("project:b"));
+		assertEquals(Collections.singleton(RESOURCE), loaded.keySet());
+		PersistentIndex.PersistedResourceDescription persisted = loaded.get(RESOURCE);
+		assertEquals(1234L, persisted.getLastModified());
+		assertTrue(persisted.hasHash(hash));
+
+		IEObjectDescription exported = Iterables.getOnlyElement(persisted.getExportedObjects());
+		assertEquals(QualifiedName.create("a", "b"), exported.getQualifiedName());
+		assertSame(EcorePackage.Literals.ECLASS, exported.getEClass());
+		assertEquals(RESOURCE.appendFragment("/1"), exported.getEObjectURI());
+		assertEquals("value", exported.getUserData("key"));
+
+		assertEquals(Collections.singletonList(QualifiedName.create("x", "y")), Lists.newArrayList(persisted.getImportedNames()));
+		IReferenceDescription reference = Iterables.getOnlyElement(persisted.getReferenceDescriptions());
+		assertEquals(RESOURCE.appendFragment("/1"), reference.getSourceEObjectUri());
+		assertEquals(OTHER.appendFragment("/0"), reference.getTargetEObjectUri());
+		assertEquals(RESOURCE.appendFragment("/0"), reference.getContainerEObjectURI());
+		assertSame(EcorePackage.Literals.ECLASS__ESUPER_TYPES, reference.getEReference());
+		assertEquals(2, reference.getIndexInList());
+
+		Issue loadedIssue = Iterables.getOnlyElement(persisted.getIssues());
+		assertEquals(Severity.WARNING, loadedIssue.getSeverity());
+		assertEquals(CheckType.FAST, loadedIssue.getType());
+		assertEquals("code", loadedIssue.getCode());
+		assertEquals("message", loadedIssue.getMessage());
+		assertEquals(RESOURCE.appendFragment("/1"), loadedIssue.getUriToProblem());
+		assertEquals(Integer.valueOf(3), loadedIssue.getLineNumber());
+		assertNull(loadedIssue.getColumn());
+		assertEquals(Integer.valueOf(42), loadedIssue.getOffset());
+		assertArrayEquals(new String[] { "data", null }, loadedIssue.getData());
+	}
+
+	@Test
+	public void testUnchangedEntriesAreCopied() throws IOException {
+		Issue.IssueImpl issue = new Issue.IssueImpl();
+		issue.setSeverity(Severity.ERROR);
+		issue.setMessage("message");
+		TestResourceDescription description = new TestResourceDescription(RESOURCE,
+				Collections.singletonList(EObjectDescription.create(QualifiedName.create("a"), proxy(EcorePackage.Literals.ECLASS, RESOURCE.appendFragment("/0")))),
+				Collections.singletonList(QualifiedName.create("x")),
+				Collections.<IReferenceDescription>singletonList(new TestReferenceDescription(RESOURCE.appendFragment("/0"), OTHER.appendFragment("/0"),
+						null, EcorePackage.Literals.ECLASS__ESUPER_TYPES, 0)));
+		Map<String, byte[]> fingerprints = Collections.singletonMap("registry", hash);
+		index.write(fingerprints, Collections.singletonList(new PersistentIndex.Entry(description, 1L, hash, Collections.<Issue>singletonList(issue))));
+		PersistentIndex.PersistedResourceDescription persisted = index.load(new ResourceSetImpl()).get(RESOURCE);
+
+		// a new resource first, whose EClass and EReference would otherwise take the pool indexes of the copied one
+		TestResourceDescription other = new TestResourceDescription(OTHER,
+				Collections.singletonList(EObjectDescription.create(QualifiedName.create("b"), proxy(EcorePackage.Literals.EPACKAGE, OTHER.appendFragment("/0")))),
+				Collections.<QualifiedName>emptyList(),
+				Collections.<IReferenceDescription>singletonList(new TestReferenceDescription(OTHER.appendFragment("/0"), RESOURCE.appendFragment("/0"),
+						null, EcorePackage.Literals.EPACKAGE__ECLASSIFIERS, 1)));
+		index.write(fingerprints, Arrays.asList(new PersistentIndex.Entry(other, 2L, hash, Collections.<Issue>emptyList()),
+				new PersistentIndex.Entry(persisted, 3L, hash)));
+
+		Map<URI, PersistentIndex.PersistedResourceDescription> loaded = index.load(new ResourceSetImpl());
+		PersistentIndex.PersistedResourceDescription copied = loaded.get(RESOURCE);
+		assertEquals(3L, copied.getLastModified());
+		IEObjectDescription exported = Iterables.getOnlyElement(copied.getExportedObjects());
+		assertEquals(QualifiedName.create("a"), exported.getQualifiedName());
+		assertSame(EcorePackage.Literals.ECLASS, exported.getEClass());
+		assertEquals(Collections.singletonList(QualifiedName.create("x")), Lists.newArrayList(copied.getImportedNames()));
+		assertSame(EcorePackage.Literals.ECLASS__ESUPER_TYPES, Iterables.getOnlyElement(copied.getReferenceDescriptions()).getEReference());
+		assertEquals("message", Iterables.getOnlyElement(copied.getIssues()).getMessage());
+
+		PersistentIndex.PersistedResourceDescription written = loaded.get(OTHER);
+		assertSame(EcorePackage.Literals.EPACKAGE, Iterables.getOnlyElement(written.getExportedObjects()).getEClass());
+		assertSame(EcorePackage.Literals.EPACKAGE__ECLASSIFIERS, Iterables.getOnlyElement(written.getReferenceDescriptions()).getEReference());
+	}
+
+	@Test
+	public void testIncompleteIndexIsNotLoaded() throws IOException {
+		Map<String, byte[]> fingerprints = Collections.singletonMap("registry", hash);
+		index.write(fingerprints, Collections.singletonList(new PersistentIndex.Entry(new TestResourceDescription(RESOURCE,
+				Collections.<IEObjectDescription>emptyList(), Collections.<QualifiedName>emptyList(), Collections.<IReferenceDescription>emptyList()),
+				1L, hash, Collections.<Issue>emptyList())));
+		try (RandomAccessFile file = new RandomAccessFile(index.getFile(), "rw")) {
+			file.setLength(file.length() - 1);
+		}
+		assertTrue(index.load(new ResourceSetImpl()).isEmpty());
+		assertTrue(index.getFingerprints().isEmpty());
+		assertFalse(new File(index.getFile().getPath() + ".tmp").exists());
+	}
+
+	private static InternalEObject proxy(EClass eClass, URI uri) {
+		InternalEObject proxy = (InternalEObject) EcoreUtil.create(eClass);
+		proxy.eSetProxyURI(uri);
+		return proxy;
+	}
+
+	private static class TestResourceDescription extends AbstractResourceDescription {
+		private final URI uri;
+		private final List<IEObjectDescription> exportedObjects;
+		private final List<QualifiedName> importedNames;
+		private final List<IReferenceDescription> references;
+
+		TestResourceDescription(URI uri, List<IEObjectDescription> exportedObjects, List<QualifiedName> importedNames, List<IReferenceDescription> references) {
+			this.uri = uri;
+			this.exportedObjects = exportedObjects;
+			this.importedNames = importedNames;
+			this.references = references;
+		}
+
+		@Override
+		protected List<IEObjectDescription> computeExportedObjects() {
+			return exportedObjects;
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+		@Override
+		public Iterable<QualifiedName> getImportedNames() {
+			return importedNames;
+		}
+
+		@Override
+		public Iterable<IReferenceDescription> getReferenceDescriptions() {
+			return references;
+		}
+	}
+
+	private static class TestReferenceDescription implements IReferenceDescription {
+		private final URI source;
+		private final URI target;
+		private final URI container;
+		private final EReference eReference;
+		private final int indexInList;
+
+		TestReferenceDescription(URI source, URI target, URI container, EReference eReference, int indexInList) {
+			this.source = source;
+			this.target = target;
+			this.container = container;
+			this.eReference = eReference;
+			this.indexInList = indexInList;
+		}
+
+		@Override
+		public URI getSourceEObjectUri() {
+			return source;
+		}
+
+		@Override
+		public URI getTargetEObjectUri() {
+			return target;
+		}
+
+		@Override
+		public URI getContainerEObjectURI() {
+			return container;
+		}
+
+		@Override
+		public EReference getEReference() {
+			return eReference;
+		}
+
+		@Override
+		public int getIndexInList() {
+			return indexInList;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.parser.antlr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.Lexer;
+import org.antlr.runtime.Token;
+import org.eclipse.emf.eson.parser.antlr.internal.InternalEFactoryLexer;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Differential test of TableDrivenEFactoryLexer against the generated InternalEFactoryLexer.
+ */
+public class TableDrivenEFactoryLexerTest {
+
+	private static final List<String> CORPUS = ImmutableList.of(
+			"",
+			"use \"http://www.eclipse.org/emf/2002/Ecore\"\nimport org.eclipse.*\n\nEPackage test {\n\tname: \"test\"\n}\n",
+			"use 'http://x' @Name { EClass = name } Test t { s: \"a\\\"b\\\\\" i: -12 d: 12.34 dt: 01.02.2014 b: true n: NULL }",
+			"A a { l: [ B { } B b2 { x: :E.LITERAL } ] r: a.b2 r2: 123abc.456 r3: ^use }",
+			"name-with,commas_and-dashes 1a 12^x ^x -5 - 5 -a trueX false NULL.x .* . @Names",
+			"// comment\r\nA { } // no newline at end",
+			"/* multi\n * line\r\n */ A /**/ { /*/ still comment */ }",
+			"\t \r\n \n\r",
+			// the odd ones, which TableDrivenEFactoryLexer leaves to the generated lexer
+			"\"unterminated", "'unterminated\\", "/* unterminated", "^ ^1 @ @Nam 7^ 7^a äöü €",
+			"# $ % & ( ) * + ; < > ? \\ ` | ~ !");
+
+	private static final List<String> FRAGMENTS = ImmutableList.of(
+			"use", "import", "@Name", "@", "{", "}", "=", ":", "[", "]", "NULL", "true", "false", ".", ".*", "*", "-", ",", "_",
+			"^", "a", "Z", "x1", "0", "42", "\"", "'", "\\", "/", "//", "/*", "*/", " ", "\t", "\n", "\r", "\r\n", "ä", "#");
+
+	@Test
+	public void testCorpus() {
+		for (String text : CORPUS) {
+			assertSameTokens(text);
+		}
+	}
+
+	@Test
+	public void testRandomCombinations() {
+		Random random = new Random(4711);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder text = new StringBuilder();
+			int fragments = random.nextInt(20);
+			for (int j = 0; j < fragments; j++) {
+				text.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+			}
+			assertSameTokens(text.toString());
+		}
+	}
+
+	private void assertSameTokens(String text) {
+		List<String> expected = tokenize(new InternalEFactoryLexer(new ANTLRStringStream(text)));
+		List<String> actual = tokenize(new TableDrivenEFactoryLexer(new ANTLRStringStream(text)));
+		assertEquals(text, expected, actual);
+	}
+
+	private List<String> tokenize(Lexer lexer) {
+		List<String> tokens = Lists.newArrayList();
+		Token token;
+		do {
+			token = lexer.nextToken();
+			CommonToken commonToken = (CommonToken) token;
+			tokens.add(token.getType() + "/" + token.getChannel() + " " + commonToken.getStartIndex() + "-" + commonToken.getStopIndex()
+					+ " " + token.getLine() + ":" + token.getCharPositionInLine() + " '" + token.getText() + "'");
+		} while (token.getType() != Token.EOF);
+		return tokens;
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.emf.eson.EFactoryRuntimeModule;
+import org.eclipse.emf.eson.EFactoryStandaloneSetup;
+import org.eclipse.emf.eson.building.ModelBuilder;
+import org.eclipse.xtext.resource.IResourceFactory;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.eclipse.xtext.util.StringInputStream;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+
+/**
+ * Tests the incremental (ModelBuilder.INCREMENTAL_KEY) derived state of an EFactoryResource.
+ */
+public class EFactoryDerivedStateComputerTest {
+
+	private static final String MODEL = "use \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+			+ "EPackage test {\n"
+			+ "\tnsURI: \"http://test\"\n"
+			+ "\teClassifiers: [\n"
+			+ "\t\tEClass A { }\n"
+			+ "\t\tEClass B { eSuperTypes: [ test.A ] }\n"
+			+ "\t]\n"
+			+ "}\n";
+
+	private Injector injector;
+	private EFactoryResource resource;
+
+	@Before
+	public void setUp() throws IOException {
+		injector = new EFactoryStandaloneSetup() {
+			@Override
+			public Injector createInjector() {
+				return Guice.createInjector(new EFactoryRuntimeModule() {
+					@Override
+					public void configureIncrementalModelBuilder(Binder binder) {
+						binder.bind(Boolean.class).annotatedWith(Names.named(ModelBuilder.INCREMENTAL_KEY)).toInstance(Boolean.TRUE);
+					}
+				});
+			}
+		}.createInjectorAndDoEMFRegistration();
+		resource = load(MODEL);
+	}
+
+	private EFactoryResource load(String model) throws IOException {
+		XtextResourceSet resourceSet = injector.getInstance(XtextResourceSet.class);
+		EFactoryResource resource = (EFactoryResource) injector.getInstance(IResourceFactory.class).createResource(URI.createURI("test.mydsl"));
+		resourceSet.getResources().add(resource);
+		resource.load(new StringInputStream(model), null);
+		resource.installDerivedState(false);
+		return resource;
+	}
+
+	// like an editor; the partial parser only re-parses the changed part, so the other NewObject remain the same
+	private static EPackage edit(EFactoryResource resource, String model, String before, String after) {
+		resource.update(model.indexOf(before), before.length(), after);
+		return (EPackage) EFactoryResource.getEFactoryEObject(resource);
+	}
+
+	private static boolean references(EClass eClass, EClass superType) {
+		return ((InternalEList<?>) eClass.getESuperTypes()).basicContains(superType);
+	}
+
+	@Test
+	public void testEditReusesUnchanged() {
+		EPackage before = (EPackage) EFactoryResource.getEFactoryEObject(resource);
+		EClass a = (EClass) before.getEClassifiers().get(0);
+		EClass b = (EClass) before.getEClassifiers().get(1);
+
+		EPackage after = edit(resource, MODEL, "EClass A { }", "EClass A { abstract: true }");
+		EClass newA = (EClass) after.getEClassifiers().get(0);
+		assertNotSame(a, newA);
+		assertTrue(newA.isAbstract());
+		assertSame(b, after.getEClassifiers().get(1));
+		// B was re-used, but its reference to the discarded A was re-linked
+		assertTrue(references(b, newA));
+		assertFalse(references(b, a));
+	}
+
+	/**
+	 * B is re-used, but as its container was built again, it is now named test.x.B; the unchanged reference to test.a.B must not resolve to it anymore.
+	 */
+	@Test
+	public void testEditRelinksReferencesToRenamed() throws IOException {
+		String model = "use \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+				+ "EPackage test {\n"
+				+ "\tnsURI: \"http://test\"\n"
+				+ "\teSubpackages: [\n"
+				+ "\t\tEPackage { name: \"a\" nsURI: \"http://test/a\" eClassifiers: [ EClass B { } ] }\n"
+				+ "\t]\n"
+				+ "\teClassifiers: [\n"
+				+ "\t\tEClass C { eSuperTypes: [ test.a.B ] }\n"
+				+ "\t]\n"
+				+ "}\n";
+		EFactoryResource resource = load(model);
+		EPackage before = (EPackage) EFactoryResource.getEFactoryEObject(resource);
+		EClass b = (EClass) before.getESubpackages().get(0).getEClassifiers().get(0);
+		EClass c = (EClass) before.getEClassifiers().get(0);
+		assertTrue(references(c, b));
+
+		EPackage after = edit(resource, model, "\"a\"", "\"x\"");
+		assertEquals("x", after.getESubpackages().get(0).getName());
+		assertSame(b, after.getESubpackages().get(0).getEClassifiers().get(0));
+		assertSame(c, after.getEClassifiers().get(0));
+		assertFalse(references(c, b));
+	}
+
+	/**
+	 * Nothing but the import changes, so C is re-used; its reference to B now resolves to the B of the other EPackage.
+	 */
+	@Test
+	public void testEditRelinksAllAfterImportChange() throws IOException {
+		String model = "import test.a.*\n"
+				+ "use \"http://www.eclipse.org/emf/2002/Ecore\"\n"
+				+ "EPackage test {\n"
+				+ "\tnsURI: \"http://test\"\n"
+				+ "\teSubpackages: [\n"
+				+ "\t\tEPackage a { nsURI: \"http://test/a\" eClassifiers: [ EClass B { } ] }\n"
+				+ "\t\tEPackage x { nsURI: \"http://test/x\" eClassifiers: [ EClass B { } ] }\n"
+				+ "\t]\n"
+				+ "\teClassifiers: [\n"
+				+ "\t\tEClass C { eSuperTypes: [ B ] }\n"
+				+ "\t]\n"
+				+ "}\n";
+		EFactoryResource resource = load(model);
+		EPackage before = (EPackage) EFactoryResource.getEFactoryEObject(resource);
+		EClass aB = (EClass) before.getESubpackages().get(0).getEClassifiers().get(0);
+		EClass xB = (EClass) before.getESubpackages().get(1).getEClassifiers().get(0);
+		EClass c = (EClass) before.getEClassifiers().get(0);
+		assertTrue(references(c, aB));
+
+		EPackage after = edit(resource, model, "import test.a.*", "import test.x.*");
+		assertSame(c, after.getEClassifiers().get(0));
+		assertSame(xB, after.getESubpackages().get(1).getEClassifiers().get(0));
+		assertTrue(references(c, xB));
+		assertFalse(references(c, aB));
+	}
+
+	/**
+	 * A reparse discards (and retains) the derived state, and then the index installs the preLinkingPhase derived state
+	 * (which it discards again) before the complete derived state is installed.
+	 */
+	@Test
+	public void testDiscardPreLinkingInstall() {
+		EPackage before = (EPackage) EFactoryResource.getEFactoryEObject(resource);
+		EClass a = (EClass) before.getEClassifiers().get(0);
+		EClass b = (EClass) before.getEClassifiers().get(1);
+		assertEquals(1, b.getESuperTypes().size());
+
+		resource.discardDerivedState();
+		assertTrue(resource.getBuilder().hasRetained());
+
+		resource.installDerivedState(true);
+		assertFalse(resource.getBuilder().hasRetained());
+		EPackage preLinked = (EPackage) resource.getContents().get(1);
+		EClass preLinkedB = (EClass) preLinked.getEClassifiers().get(1);
+		// neither re-used from the retained model, nor linked
+		assertNotSame(b, preLinkedB);
+		assertTrue(preLinkedB.getESuperTypes().isEmpty());
+		assertTrue(a.eIsProxy());
+		assertTrue(b.eIsProxy());
+
+		resource.discardDerivedState();
+		resource.installDerivedState(false);
+		EPackage after = (EPackage) EFactoryResource.getEFactoryEObject(resource);
+		// references from other resources to the dropped EObjects resolve to those of the new model
+		assertSame(after.getEClassifiers().get(0), EcoreUtil.resolve(a, resource));
+		assertSame(after.getEClassifiers().get(1), EcoreUtil.resolve(b, resource));
+		assertEquals(1, ((EClass) after.getEClassifiers().get(1)).getESuperTypes().size());
+	}
+}
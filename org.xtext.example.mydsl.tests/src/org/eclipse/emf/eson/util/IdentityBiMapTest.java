@@ -0,0 +1,233 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests IdentityBiMap, including the collisions and the backward shift deletion of its open addressing tables.
+ */
+public class IdentityBiMapTest {
+
+	// the table size of a new IdentityBiMap, for its default capacity of 16
+	private static final int MASK = 31;
+
+	@Test
+	public void testPutAndInverse() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		Object key = new Object();
+		Object value = new Object();
+		assertTrue(map.isEmpty());
+		map.put(key, value);
+		assertEquals(1, map.size());
+		assertSame(value, map.get(key));
+		assertSame(key, map.getKey(value));
+		assertTrue(map.containsValue(value));
+		assertNull(map.get(value));
+		assertNull(map.getKey(key));
+		// the same entry again changes nothing
+		map.put(key, value);
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testComparesByIdentity() {
+		IdentityBiMap<String, String> map = new IdentityBiMap<String, String>();
+		String key = new String("key");
+		map.put(key, new String("value"));
+		assertNull(map.get(new String("key")));
+		assertNull(map.getKey("value"));
+	}
+
+	@Test
+	public void testValueOfAnotherKey() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		Object value = new Object();
+		map.put(new Object(), value);
+		try {
+			map.put(new Object(), value);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testNulls() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		try {
+			map.put(null, new Object());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			map.put(new Object(), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertNull(map.get(null));
+		assertNull(map.getKey(null));
+	}
+
+	@Test
+	public void testReplaceValue() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		Object key = new Object();
+		Object oldValue = new Object();
+		Object newValue = new Object();
+		map.put(key, oldValue);
+		map.put(key, newValue);
+		assertEquals(1, map.size());
+		assertSame(newValue, map.get(key));
+		assertSame(key, map.getKey(newValue));
+		assertNull(map.getKey(oldValue));
+		assertFalse(map.containsValue(oldValue));
+		// the old value is free for another key again
+		Object otherKey = new Object();
+		map.put(otherKey, oldValue);
+		assertSame(otherKey, map.getKey(oldValue));
+	}
+
+	@Test
+	public void testCollisions() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		List<Object> keys = colliding(5, 7);
+		List<Object> values = colliding(5, 7);
+		for (int i = 0; i < keys.size(); i++) {
+			map.put(keys.get(i), values.get(i));
+		}
+		for (int i = 0; i < keys.size(); i++) {
+			assertSame(values.get(i), map.get(keys.get(i)));
+			assertSame(keys.get(i), map.getKey(values.get(i)));
+		}
+		assertNull(map.get(colliding(1, 7).get(0)));
+	}
+
+	@Test
+	public void testDeleteWrapsAround() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		// all in the last slot, so that they occupy the slots MASK, 0 and 1, and one more from slot 0
+		List<Object> values = colliding(3, MASK);
+		Object atZero = colliding(1, 0).get(0);
+		List<Object> keys = Lists.newArrayList(new Object(), new Object(), new Object(), new Object());
+		for (int i = 0; i < 3; i++) {
+			map.put(keys.get(i), values.get(i));
+		}
+		map.put(keys.get(3), atZero);
+
+		// removes values[0] from the value table, so the others have to shift back across the end of the table
+		Object replacement = new Object();
+		map.put(keys.get(0), replacement);
+		assertNull(map.getKey(values.get(0)));
+		assertSame(keys.get(1), map.getKey(values.get(1)));
+		assertSame(keys.get(2), map.getKey(values.get(2)));
+		assertSame(keys.get(3), map.getKey(atZero));
+		assertSame(keys.get(0), map.getKey(replacement));
+
+		map.put(keys.get(1), new Object());
+		assertNull(map.getKey(values.get(1)));
+		assertSame(keys.get(2), map.getKey(values.get(2)));
+		assertSame(keys.get(3), map.getKey(atZero));
+	}
+
+	@Test
+	public void testResize() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		List<Object> keys = Lists.newArrayList();
+		List<Object> values = Lists.newArrayList();
+		for (int i = 0; i < 1000; i++) {
+			keys.add(new Object());
+			values.add(new Object());
+			map.put(keys.get(i), values.get(i));
+		}
+		assertEquals(1000, map.size());
+		assertEquals(values, map.values());
+		for (int i = 0; i < 1000; i++) {
+			assertSame(values.get(i), map.get(keys.get(i)));
+			assertSame(keys.get(i), map.getKey(values.get(i)));
+		}
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(keys.get(0)));
+		assertNull(map.getKey(values.get(0)));
+		map.ensureCapacity(2000);
+		map.put(keys.get(0), values.get(0));
+		assertSame(values.get(0), map.get(keys.get(0)));
+	}
+
+	@Test
+	public void testPutAll() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		IdentityBiMap<Object, Object> other = new IdentityBiMap<Object, Object>();
+		Object key = new Object();
+		Object value = new Object();
+		other.put(key, value);
+		map.putAll(other);
+		assertSame(value, map.get(key));
+		assertSame(key, map.getKey(value));
+	}
+
+	@Test
+	public void testAgainstIdentityHashMap() {
+		IdentityBiMap<Object, Object> map = new IdentityBiMap<Object, Object>();
+		Map<Object, Object> expected = new IdentityHashMap<Object, Object>();
+		List<Object> keys = Lists.newArrayList();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			Object key;
+			if (keys.isEmpty() || random.nextInt(3) == 0) {
+				key = new Object();
+				keys.add(key);
+			} else {
+				key = keys.get(random.nextInt(keys.size()));
+			}
+			Object value = new Object();
+			map.put(key, value);
+			expected.put(key, value);
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Object, Object> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), map.get(entry.getKey()));
+			assertSame(entry.getKey(), map.getKey(entry.getValue()));
+		}
+	}
+
+	// new objects whose home slot in a table of MASK + 1 slots is slot
+	private static List<Object> colliding(int count, int slot) {
+		List<Object> objects = Lists.newArrayListWithCapacity(count);
+		while (objects.size() < count) {
+			Object candidate = new Object();
+			if (IdentityBiMap.slot(candidate, MASK) == slot)
+				objects.add(candidate);
+		}
+		return objects;
+	}
+}
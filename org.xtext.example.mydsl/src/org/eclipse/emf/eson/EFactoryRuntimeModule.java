@@ -13,13 +13,18 @@
 package org.eclipse.emf.eson;
 
 import org.apache.log4j.Logger;
+import org.eclipse.emf.eson.building.ModelBuilder;
 import org.eclipse.emf.eson.conversion.DATEValueConverter;
 import org.eclipse.emf.eson.conversion.TerminalConverters;
+import org.eclipse.emf.eson.parser.antlr.internal.InternalEFactoryLexer;
 import org.eclipse.emf.eson.resource.EFactoryDerivedStateComputer;
 import org.eclipse.emf.eson.resource.EFactoryEncodingProvider;
 import org.eclipse.emf.eson.resource.EFactoryLocationInFileProvider;
 import org.eclipse.emf.eson.resource.EFactoryResourceFactory;
 import org.eclipse.emf.eson.resource.EFactoryResourceServiceProvider;
+import org.eclipse.emf.eson.resource.EFactoryResourceSet;
+import org.eclipse.emf.eson.resource.EFactoryResourceStorageFacade;
+import org.eclipse.emf.eson.scoping.EFactoryGlobalScopeProvider;
 import org.eclipse.emf.eson.scoping.EFactoryQualifiedNameProvider;
 import org.eclipse.emf.eson.scoping.EPackageScopeProvider;
 import org.eclipse.emf.eson.scoping.ExtendedImportedNamespaceAwareLocalScopeProvider;
@@ -32,12 +37,17 @@ import org.eclipse.xtext.generator.IGenerator;
 import org.eclipse.xtext.linking.ILinkingDiagnosticMessageProvider;
 import org.eclipse.xtext.naming.IQualifiedNameProvider;
 import org.eclipse.xtext.parser.IEncodingProvider;
+import org.eclipse.xtext.parser.antlr.Lexer;
+import org.eclipse.xtext.parser.antlr.LexerBindings;
 import org.eclipse.xtext.parser.antlr.IReferableElementsUnloader;
 import org.eclipse.xtext.parser.antlr.IReferableElementsUnloader.GenericUnloader;
 import org.eclipse.xtext.resource.IDerivedStateComputer;
 import org.eclipse.xtext.resource.ILocationInFileProvider;
 import org.eclipse.xtext.resource.IResourceFactory;
 import org.eclipse.xtext.resource.IResourceServiceProvider;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.eclipse.xtext.resource.persistence.IResourceStorageFacade;
+import org.eclipse.xtext.scoping.IGlobalScopeProvider;
 import org.eclipse.xtext.scoping.IScope;
 import org.eclipse.xtext.scoping.IScopeProvider;
 import org.eclipse.xtext.scoping.impl.AbstractDeclarativeScopeProvider;
@@ -64,6 +74,43 @@ public class EFactoryRuntimeModule extends AbstractEFactoryRuntimeModule {
 		binder.bind(IReferableElementsUnloader.class).to(GenericUnloader.class);
 	}
 	
+	// override and bind to TRUE to have EFactoryDerivedStateComputer rebuild only changed NewObject, see ModelBuilder.rebuildWithoutLinking()
+	public void configureIncrementalModelBuilder(Binder binder) {
+		binder.bind(Boolean.class).annotatedWith(Names.named(ModelBuilder.INCREMENTAL_KEY)).toInstance(Boolean.FALSE);
+	}
+
+	// override and bind to e.g. 10000 to have the ModelBuilder build large Factory on several threads, see ForkJoinBuilder
+	public void configureParallelModelBuilder(Binder binder) {
+		binder.bind(Integer.class).annotatedWith(Names.named(ModelBuilder.PARALLEL_THRESHOLD_KEY)).toInstance(0);
+	}
+
+	// override and bind to TRUE to only build the objects and their names for the index in the preLinkingPhase, see ModelBuilder.buildExportsOnly()
+	public void configureExportsOnlyModelBuilder(Binder binder) {
+		binder.bind(Boolean.class).annotatedWith(Names.named(ModelBuilder.EXPORTS_ONLY_KEY)).toInstance(Boolean.FALSE);
+	}
+
+	// override and bind to TRUE to only build the features of derived EObjects which are accessed, see EFactoryResource.materialize()
+	public void configureLazyModelBuilder(Binder binder) {
+		binder.bind(Boolean.class).annotatedWith(Names.named(ModelBuilder.LAZY_KEY)).toInstance(Boolean.FALSE);
+	}
+
+	// override and bind to a directory to load unchanged files from a cache instead of parsing and building them again, see EFactoryResourceStorageFacade
+	// (the least recently used entries are deleted above EFactoryResourceStorageFacade.CACHE_MAX_MEGABYTES_KEY, 512 by default)
+	public void configureResourceStorageCache(Binder binder) {
+		binder.bind(String.class).annotatedWith(Names.named(EFactoryResourceStorageFacade.CACHE_DIRECTORY_KEY)).toInstance("");
+		binder.bind(String.class).annotatedWith(Names.named(EFactoryResourceStorageFacade.METAMODEL_VERSION_KEY)).toInstance("");
+	}
+
+	public Class<? extends IResourceStorageFacade> bindIResourceStorageFacade() {
+		return EFactoryResourceStorageFacade.class;
+	}
+
+	// override and bind to TableDrivenEFactoryLexer to tokenize with the hand-written lexer instead of the generated one
+	@Override
+	public void configureRuntimeLexer(Binder binder) {
+		binder.bind(Lexer.class).annotatedWith(Names.named(LexerBindings.RUNTIME)).to(InternalEFactoryLexer.class);
+	}
+
 	@Override
 	public Class<? extends org.eclipse.xtext.conversion.IValueConverterService> bindIValueConverterService() {
 		return TerminalConverters.class;
@@ -102,6 +149,11 @@ public class EFactoryRuntimeModule extends AbstractEFactoryRuntimeModule {
 		return EPackageScopeProvider.class;
 	}
 
+	@Override
+	public Class<? extends IGlobalScopeProvider> bindIGlobalScopeProvider() {
+		return EFactoryGlobalScopeProvider.class;
+	}
+
 	public Class<? extends org.eclipse.xtext.resource.IResourceDescription.Manager> bindIResourceDescription$Manager() {
 		return org.eclipse.xtext.resource.DerivedStateAwareResourceDescriptionManager.class;
 	}
@@ -117,6 +169,11 @@ public class EFactoryRuntimeModule extends AbstractEFactoryRuntimeModule {
 		return EFactoryResourceServiceProvider.class;
 	}
 
+	// with a VersionedEPackageRegistry, see EPackageRegistry
+	public Class<? extends XtextResourceSet> bindXtextResourceSet() {
+		return EFactoryResourceSet.class;
+	}
+
 	@Override
 	public Class<? extends IQualifiedNameProvider> bindIQualifiedNameProvider() {
 		return EFactoryQualifiedNameProvider.class;
@@ -23,6 +23,9 @@ import org.eclipse.efbt.cocamo.smcubes.model.efbt_vtl_transformation.Efbt_vtl_tr
 import org.eclipse.efbt.cocamo.core.model.functionality_module.Functionality_modulePackage;
 import org.eclipse.efbt.cocamo.core.model.requirements_text.Requirements_textPackage;
 import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.eson.resource.EFactoryResource;
+import org.eclipse.emf.eson.util.EPackageRegistry;
 
 
 
@@ -37,6 +40,15 @@ public class EFactoryStandaloneSetup extends EFactoryStandaloneSetupGenerated {
 	public static void doSetup() {
 		new EFactoryStandaloneSetup().createInjectorAndDoEMFRegistration();
 	}
+
+	/**
+	 * Makes all EFactoryResource subsequently loaded into the ResourceSet release their node model and source model
+	 * as soon as their derived model is built, see EFactoryResource.releaseSource().  For batch tools which
+	 * only read the derived EObjects of many models, and don't validate, edit or save them.
+	 */
+	public static void setHeadless(ResourceSet resourceSet) {
+		resourceSet.getLoadOptions().put(EFactoryResource.OPTION_HEADLESS, Boolean.TRUE);
+	}
 	
 	@Override
 	public void register(Injector injector) {
@@ -73,6 +85,7 @@ public class EFactoryStandaloneSetup extends EFactoryStandaloneSetupGenerated {
 	}
 	
 	
+	EPackageRegistry.EPackageRegistryESONImpl.invalidateGlobalRegistry();
 	
 	super.register(injector);
 }
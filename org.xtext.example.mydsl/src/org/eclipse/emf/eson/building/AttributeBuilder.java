@@ -15,28 +15,23 @@ package org.eclipse.emf.eson.building;
 import org.apache.log4j.Logger;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EEnumLiteral;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.eson.eFactory.Attribute;
 import org.eclipse.emf.eson.eFactory.Feature;
+import org.eclipse.emf.eson.eFactory.Value;
 import org.eclipse.emf.eson.scoping.EFactoryQualifiedNameProvider;
 import org.eclipse.emf.eson.util.EcoreUtil3;
-import org.eclipse.emf.eson.util.ValueResolver;
 
 public class AttributeBuilder extends FeatureBuilder {
 	private static final Logger logger = Logger.getLogger(AttributeBuilder.class);
 
 	private final static ValueSwitch valueSwitch = new ValueSwitch();
-	private final static ValueResolver valueResolver = new ValueResolver();
-
-	private Attribute attribute;
-
-	public AttributeBuilder(Attribute object) {
-		this.attribute = object;
-	}
+	private final static AttributeConversionPlans conversionPlans = new AttributeConversionPlans();
 
 	@Override
-	public void build(boolean preLinkingPhase) throws ModelBuilderException {
-		EStructuralFeature eFeature = getFeature().getEFeature();
+	public void build(ModelBuilder modelBuilder, EObject container, Feature feature, Value value, boolean preLinkingPhase) throws ModelBuilderException {
+		EStructuralFeature eFeature = feature.getEFeature();
 		if (!(eFeature instanceof EAttribute))
 			return;
 		EAttribute eAttribute = (EAttribute) eFeature;
@@ -49,7 +44,9 @@ public class AttributeBuilder extends FeatureBuilder {
 				&& name != null && !name.equals(EFactoryQualifiedNameProvider.NAME_ATTRIBUTE_NAME))
 			return;
 
-		Object newValue = valueResolver.apply(attribute);
+		Class<?> clazz = eAttribute.getEAttributeType().getInstanceClass();
+		AttributeConversionPlans.Plan plan = conversionPlans.get(value.eClass(), clazz);
+		Object newValue = plan.getValue((Attribute) value);
 		
 		// @see BrokenEnumTest
 		if (newValue instanceof EEnumLiteral) {
@@ -59,20 +56,19 @@ public class AttributeBuilder extends FeatureBuilder {
 			}
 		}
 		
-		Class<?> clazz = eAttribute.getEAttributeType().getInstanceClass();
 		if (clazz == null) {
 			if (!(newValue instanceof EEnumLiteral)) {
 				throw new ModelBuilderException("Uh uh, EAttributeType().getInstanceClass() == null, but its not an EEnumLiteral, for feature: " + eAttribute.toString());
 			} // else, if newValue is an EEnumLiteral, then ahl-iz-wehl - it's a dynamic ecore model, without generated code for the Enum literal - which is still fine.
-		} else {
+		} else if (!plan.isDirect() || newValue == null) {
 			try {
-				newValue = convertToTargetType(clazz, newValue, getFeature());
+				newValue = convertToTargetType(clazz, newValue, feature);
 			} catch (RuntimeException e) {
 				throw new ModelBuilderException("convertToTargetType() failed for feature: " + eAttribute.toString(), e);
 			}
 		}
 
-		EcoreUtil3.setOrAddValue(getContainer(), eAttribute, newValue);
+		EcoreUtil3.setOrAddValue(container, eAttribute, newValue);
 	}
 
 	protected Object convertToTargetType(Class<?> clazz, Object newValue, Feature feature) throws IllegalArgumentException {
@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.building;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.eson.eFactory.Attribute;
+import org.eclipse.emf.eson.eFactory.BooleanAttribute;
+import org.eclipse.emf.eson.eFactory.DateAttribute;
+import org.eclipse.emf.eson.eFactory.DoubleAttribute;
+import org.eclipse.emf.eson.eFactory.EFactoryPackage;
+import org.eclipse.emf.eson.eFactory.EnumAttribute;
+import org.eclipse.emf.eson.eFactory.IntegerAttribute;
+import org.eclipse.emf.eson.eFactory.NullAttribute;
+import org.eclipse.emf.eson.eFactory.StringAttribute;
+import org.eclipse.emf.eson.util.ValueResolver;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.primitives.Primitives;
+
+/**
+ * How AttributeBuilder gets the value of an Attribute, and whether it then still has to be converted,
+ * for each (Attribute EClass, target instance class) pair, worked out once instead of for each Attribute.
+ *
+ * The value is read with the generated getter of the Attribute, instead of an eGet() of the feature
+ * named "value"; and if it is already of the target type (e.g. an IntegerAttribute for an ELong),
+ * it doesn't go through the ValueSwitch (and its toString() and parsing) at all.
+ */
+// intentionally package local, only used by AttributeBuilder
+class AttributeConversionPlans {
+
+	// for Attributes which don't have a target instance class, e.g. dynamic EEnum
+	private static final Class<?> NO_INSTANCE_CLASS = Void.class;
+
+	private final ConcurrentMap<EClass, ConcurrentMap<Class<?>, Plan>> plans = new ConcurrentHashMap<EClass, ConcurrentMap<Class<?>, Plan>>();
+
+	Plan get(EClass attributeEClass, @Nullable Class<?> targetClass) {
+		ConcurrentMap<Class<?>, Plan> eClassPlans = plans.get(attributeEClass);
+		if (eClassPlans == null) {
+			eClassPlans = new ConcurrentHashMap<Class<?>, Plan>();
+			ConcurrentMap<Class<?>, Plan> existing = plans.putIfAbsent(attributeEClass, eClassPlans);
+			if (existing != null)
+				eClassPlans = existing;
+		}
+		Class<?> key = targetClass != null ? targetClass : NO_INSTANCE_CLASS;
+		Plan plan = eClassPlans.get(key);
+		if (plan == null) {
+			Accessor accessor = Accessor.of(attributeEClass);
+			boolean direct = targetClass != null && accessor.valueClass != null && Primitives.wrap(targetClass) == accessor.valueClass;
+			plan = new Plan(accessor, direct);
+			eClassPlans.putIfAbsent(key, plan);
+		}
+		return plan;
+	}
+
+	static final class Plan {
+		private final Accessor accessor;
+		private final boolean direct;
+
+		private Plan(Accessor accessor, boolean direct) {
+			this.accessor = accessor;
+			this.direct = direct;
+		}
+
+		Object getValue(Attribute attribute) {
+			return accessor.getValue(attribute);
+		}
+
+		/**
+		 * @return true if the (non-null) value of getValue() already is of the target instance class, and needs no conversion
+		 */
+		boolean isDirect() {
+			return direct;
+		}
+	}
+
+	private enum Accessor {
+		STRING(String.class) {
+			@Override
+			Object getValue(Attribute attribute) {
+				return ((StringAttribute) attribute).getValue();
+			}
+		},
+		INTEGER(Long.class) {
+			@Override
+			Object getValue(Attribute attribute) {
+				return ((IntegerAttribute) attribute).getValue();
+			}
+		},
+		DOUBLE(Double.class) {
+			@Override
+			Object getValue(Attribute attribute) {
+				return ((DoubleAttribute) attribute).getValue();
+			}
+		},
+		BOOLEAN(Boolean.class) {
+			@Override
+			Object getValue(Attribute attribute) {
+				return ((BooleanAttribute) attribute).isValue();
+			}
+		},
+		DATE(Date.class) {
+			@Override
+			Object getValue(Attribute attribute) {
+				return ((DateAttribute) attribute).getValue();
+			}
+		},
+		// the value of these always needs the ValueSwitch
+		NULL(null) {
+			@Override
+			Object getValue(Attribute attribute) {
+				return ((NullAttribute) attribute).getValue();
+			}
+		},
+		ENUM(null) {
+			@Override
+			Object getValue(Attribute attribute) {
+				return ((EnumAttribute) attribute).getValue();
+			}
+		},
+		// for any other (future) Attribute
+		REFLECTIVE(null) {
+			private final ValueResolver valueResolver = new ValueResolver();
+
+			@Override
+			Object getValue(Attribute attribute) {
+				return valueResolver.apply(attribute);
+			}
+		};
+
+		final @Nullable Class<?> valueClass;
+
+		private Accessor(@Nullable Class<?> valueClass) {
+			this.valueClass = valueClass;
+		}
+
+		abstract Object getValue(Attribute attribute);
+
+		static Accessor of(EClass attributeEClass) {
+			if (attributeEClass == EFactoryPackage.Literals.STRING_ATTRIBUTE)
+				return STRING;
+			if (attributeEClass == EFactoryPackage.Literals.INTEGER_ATTRIBUTE)
+				return INTEGER;
+			if (attributeEClass == EFactoryPackage.Literals.DOUBLE_ATTRIBUTE)
+				return DOUBLE;
+			if (attributeEClass == EFactoryPackage.Literals.BOOLEAN_ATTRIBUTE)
+				return BOOLEAN;
+			if (attributeEClass == EFactoryPackage.Literals.DATE_ATTRIBUTE)
+				return DATE;
+			if (attributeEClass == EFactoryPackage.Literals.NULL_ATTRIBUTE)
+				return NULL;
+			if (attributeEClass == EFactoryPackage.Literals.ENUM_ATTRIBUTE)
+				return ENUM;
+			return REFLECTIVE;
+		}
+	}
+}
@@ -15,26 +15,23 @@ package org.eclipse.emf.eson.building;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.eson.eFactory.Containment;
+import org.eclipse.emf.eson.eFactory.Feature;
+import org.eclipse.emf.eson.eFactory.Value;
 import org.eclipse.emf.eson.util.EcoreUtil3;
 
 import com.google.common.base.Optional;
 
 public class ContainmentBuilder extends FeatureBuilder {
 
-	private Containment containment;
-
-	public ContainmentBuilder(Containment containment) {
-		this.containment = containment;
-	}
-
 	@Override
-	public void build(boolean preLinkingPhase) throws ModelBuilderException {
-		Optional<EObject> newValue = getModelBuilder().build(containment.getValue(), preLinkingPhase);
-		final EStructuralFeature eFeature = getFeature().getEFeature();
+	public void build(ModelBuilder modelBuilder, EObject container, Feature feature, Value value, boolean preLinkingPhase) throws ModelBuilderException {
+		Containment containment = (Containment) value;
+		Optional<EObject> newValue = modelBuilder.build(containment.getValue(), preLinkingPhase);
+		final EStructuralFeature eFeature = feature.getEFeature();
 		if (eFeature.eIsProxy())
 			return;
 		if (newValue.isPresent())
-			EcoreUtil3.setOrAddValue(getContainer(), eFeature, newValue.get());
+			EcoreUtil3.setOrAddValue(container, eFeature, newValue.get());
 	}
 
 }
@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.building;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Links the DeferredReferences of one ModelBuilder.link() as a batch.
+ *
+ * The proxy of each Reference is Xtext's lazy link URI, which is unique per
+ * Reference, so it is resolved through the LazyLinkingResource of the Reference
+ * (which is why the derived model must already be in its Resource), without
+ * loading any other Resource.  A target in another Resource is then shared by
+ * all references to its URI: it is only looked up once, and is either the
+ * target itself, if its Resource is already loaded, or one proxy for all of
+ * them.  A Reference which cannot be resolved (now) gets a proxy of its lazy
+ * link URI, which is resolved (or reported) lazily later, as before.  Values of many-valued references are
+ * collected per container feature, and added in bulk by apply(), instead of
+ * one eList.add() each.  As the values of repeated references (e.g. [a a]) are
+ * then the same EObject, they are added without the uniqueness check of the
+ * EList, so that each occurrence is kept, as when each had its own proxy.
+ *
+ * add() only resolves, and apply() only sets the resolved values; so that the
+ * model can be locked for apply(), but not while resolving, which may have to
+ * lock (and materialize) another Resource, see ModelBuilder.link(Object).
+ */
+// intentionally package local, only used by ModelBuilder
+class DeferredLinker {
+	private static final Logger logger = Logger.getLogger(DeferredLinker.class);
+
+	// the shared target of each target URI in another Resource, see getTarget()
+	private final Map<EClass, Map<URI, EObject>> targets = Maps.newHashMap();
+	// LinkedHashMap, so that the values are added in the order of the DeferredReferences
+	private final Map<EObject, Map<EStructuralFeature, List<EObject>>> manyValued = Maps.newLinkedHashMap();
+	private final Map<EObject, Map<EStructuralFeature, EObject>> singleValued = Maps.newLinkedHashMap();
+
+	void add(DeferredReference reference) throws ModelBuilderException {
+		final EStructuralFeature eFeature = reference.feature.getEFeature();
+		if (eFeature.eIsProxy())
+			return;
+		EObject container = reference.container;
+		EObject newValue = reference.getReferencedObject(this);
+		if (eFeature.isMany()) {
+			Map<EStructuralFeature, List<EObject>> containerValues = manyValued.get(container);
+			if (containerValues == null) {
+				containerValues = Maps.newLinkedHashMap();
+				manyValued.put(container, containerValues);
+			}
+			List<EObject> values = containerValues.get(eFeature);
+			if (values == null) {
+				values = Lists.newArrayList();
+				containerValues.put(eFeature, values);
+			}
+			values.add(newValue);
+		} else {
+			Map<EStructuralFeature, EObject> containerValues = singleValued.get(container);
+			if (containerValues == null) {
+				containerValues = Maps.newLinkedHashMap();
+				singleValued.put(container, containerValues);
+			}
+			containerValues.put(eFeature, newValue);
+		}
+	}
+
+	/**
+	 * Sets the values resolved for all single-valued features, and adds those collected for all many-valued features.
+	 */
+	void apply() {
+		for (Entry<EObject, Map<EStructuralFeature, EObject>> containerValues : singleValued.entrySet()) {
+			EObject container = containerValues.getKey();
+			for (Entry<EStructuralFeature, EObject> featureValue : containerValues.getValue().entrySet()) {
+				try {
+					container.eSet(featureValue.getKey(), featureValue.getValue());
+				} catch (RuntimeException e) {
+					logger.error("link() failed", e);
+				}
+			}
+		}
+		singleValued.clear();
+		for (Entry<EObject, Map<EStructuralFeature, List<EObject>>> containerValues : manyValued.entrySet()) {
+			EObject container = containerValues.getKey();
+			for (Entry<EStructuralFeature, List<EObject>> featureValues : containerValues.getValue().entrySet()) {
+				@SuppressWarnings("unchecked")
+				InternalEList<EObject> eList = (InternalEList<EObject>) container.eGet(featureValues.getKey());
+				try {
+					eList.addAllUnique(featureValues.getValue());
+				} catch (RuntimeException e) {
+					// fall back to adding one by one, so that one bad value doesn't lose all others
+					for (EObject value : featureValues.getValue()) {
+						try {
+							eList.addUnique(value);
+						} catch (RuntimeException t) {
+							logger.error("link() failed", t);
+						}
+					}
+				}
+			}
+		}
+		manyValued.clear();
+	}
+
+	/**
+	 * The target of the lazy link proxy of a Reference, see the class comment.
+	 *
+	 * @param eClass the type of the EReference, for a proxy of a target which is not known yet
+	 */
+	EObject getTarget(EObject reference, EClass eClass, URI proxyURI) {
+		Resource resource = reference.eResource();
+		if (resource == null || !proxyURI.trimFragment().equals(resource.getURI()))
+			return getShared(eClass, proxyURI, resource);
+		EObject target;
+		try {
+			target = resource.getEObject(proxyURI.fragment());
+		} catch (RuntimeException e) {
+			logger.debug("Cannot resolve " + proxyURI + " now", e);
+			target = null;
+		}
+		if (target == null)
+			return newProxy(eClass, proxyURI);
+		if (!target.eIsProxy())
+			return target;
+		// a description of the index, of an EObject in another Resource
+		return getShared(target.eClass(), ((InternalEObject) target).eProxyURI(), resource);
+	}
+
+	private EObject getShared(EClass eClass, URI targetURI, @Nullable Resource context) {
+		Map<URI, EObject> eClassTargets = targets.get(eClass);
+		if (eClassTargets == null) {
+			eClassTargets = Maps.newHashMap();
+			targets.put(eClass, eClassTargets);
+		}
+		EObject target = eClassTargets.get(targetURI);
+		if (target == null) {
+			target = getLoaded(targetURI, context);
+			if (target == null)
+				target = newProxy(eClass, targetURI);
+			eClassTargets.put(targetURI, target);
+		}
+		return target;
+	}
+
+	// null if the Resource of the URI is not loaded (it is not loaded here, only when the proxy is resolved)
+	private static @Nullable EObject getLoaded(URI uri, @Nullable Resource context) {
+		ResourceSet resourceSet = context == null ? null : context.getResourceSet();
+		if (resourceSet == null)
+			return null;
+		Resource resource = resourceSet.getResource(uri.trimFragment(), false);
+		if (resource == null || !resource.isLoaded())
+			return null;
+		try {
+			return resource.getEObject(uri.fragment());
+		} catch (RuntimeException e) {
+			logger.debug("Cannot resolve " + uri + " now", e);
+			return null;
+		}
+	}
+
+	private static EObject newProxy(EClass eClass, URI proxyURI) {
+		InternalEObject proxy = (InternalEObject) EcoreUtil.create(eClass);
+		proxy.eSetProxyURI(proxyURI);
+		return proxy;
+	}
+}
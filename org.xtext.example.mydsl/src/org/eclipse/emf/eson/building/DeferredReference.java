@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.building;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.eson.eFactory.Feature;
+import org.eclipse.emf.eson.eFactory.NewObject;
+import org.eclipse.emf.eson.eFactory.impl.ReferenceImpl;
+
+/**
+ * A Reference which ReferenceBuilder built, waiting for ModelBuilder.link().
+ */
+// intentionally package local, only used by ReferenceBuilder, ModelBuilder and DeferredLinker
+class DeferredReference {
+
+	final EObject container;
+	final Feature feature;
+	private final ReferenceImpl reference;
+
+	DeferredReference(EObject container, Feature feature, ReferenceImpl reference) {
+		this.container = container;
+		this.feature = feature;
+		this.reference = reference;
+	}
+
+	/**
+	 * @param linker resolves the target, and shares it with all other references to the same target in this link()
+	 */
+	EObject getReferencedObject(DeferredLinker linker) throws ModelBuilderException {
+		EObject referencedObject = reference.basicGetValue();
+		if (referencedObject instanceof NewObject) {
+			throw new IllegalStateException("We shouldn't have any NewObject here anymore now?!");
+		}
+		if (referencedObject.eIsProxy()) {
+			// TODO subclass problem.. :-( @see org.eclipse.xtext.linking.lazy.LazyLinker.findInstantiableCompatible(EClass)
+			EReference eRef = (EReference) feature.getEFeature();
+			EClass refEClass = eRef.getEReferenceType();
+			URI proxyURI = ((InternalEObject)referencedObject).eProxyURI();
+			return linker.getTarget(reference, refEClass, proxyURI);
+		}
+		return referencedObject;
+	}
+}
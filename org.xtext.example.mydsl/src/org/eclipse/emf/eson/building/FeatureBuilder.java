@@ -14,40 +14,20 @@ package org.eclipse.emf.eson.building;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.eson.eFactory.Feature;
-
+import org.eclipse.emf.eson.eFactory.Value;
+
+/**
+ * Builds one Value of a Feature into its container EObject.
+ *
+ * FeatureBuilders are stateless (everything is passed to build()), so that
+ * FeatureSwitch can return the same instance for every Feature, and one
+ * instance can be used by several (forked) ModelBuilders at the same time.
+ */
 public abstract class FeatureBuilder {
 
-	private Feature feature;
-	private EObject container;
-	private ModelBuilder modelBuilder;
-
-	Feature getFeature() {
-		return feature;
-	}
-
-	EObject getContainer() {
-		return container;
-	}
-
-	ModelBuilder getModelBuilder() {
-		return modelBuilder;
-	}
-
-	public FeatureBuilder feature(Feature feature) {
-		this.feature = feature;
-		return this;
-	}
-
-	public FeatureBuilder container(EObject container) {
-		this.container = container;
-		return this;
-	}
-
-	public abstract void build(boolean preLinkingPhase) throws ModelBuilderException;
-
-	public FeatureBuilder modelBuilder(ModelBuilder modelBuilder) {
-		this.modelBuilder = modelBuilder;
-		return this;
-	}
+	/**
+	 * @param value the Value of the Feature to build; usually feature.getValue(), but one of its values for a MultiValue 
+	 */
+	public abstract void build(ModelBuilder modelBuilder, EObject container, Feature feature, Value value, boolean preLinkingPhase) throws ModelBuilderException;
 
 }
@@ -33,8 +33,15 @@ import org.eclipse.xtext.EcoreUtil2;
  * might not have typed {} yet, or user might have forgotten a [ ] or is
  * missing the = and so the Parser cannot create the correct Value; we
  * want the ModelBuider to ignore all these cases.
+ * 
+ * The FeatureBuilders are stateless, so this always returns the same instances.
  */
 public class FeatureSwitch extends EFactorySwitch<FeatureBuilder> {
+
+	protected final FeatureBuilder containmentBuilder = new ContainmentBuilder();
+	protected final FeatureBuilder referenceBuilder = new ReferenceBuilder();
+	protected final FeatureBuilder attributeBuilder = new AttributeBuilder();
+	protected final FeatureBuilder multiValueBuilder = new MultiValueBuilder();
 	
 	@Override
 	public FeatureBuilder caseContainment(Containment object) {
@@ -45,7 +52,7 @@ public class FeatureSwitch extends EFactorySwitch<FeatureBuilder> {
 		if (object.getValue() == null)
 			return null;
 		
-		return new ContainmentBuilder(object);
+		return containmentBuilder;
 	}
 
 	@Override
@@ -57,7 +64,7 @@ public class FeatureSwitch extends EFactorySwitch<FeatureBuilder> {
 		if (objectImpl.basicGetValue() == null)
 			return null;
 		
-		return new ReferenceBuilder(objectImpl);
+		return referenceBuilder;
 	}
 
 	@Override
@@ -65,7 +72,7 @@ public class FeatureSwitch extends EFactorySwitch<FeatureBuilder> {
 		if (!EcoreUtil3.isEAttribute(getEFeature(object)))
 			return null;
 
-		return new AttributeBuilder(object);
+		return attributeBuilder;
 	}
 
 	@Override
@@ -74,7 +81,7 @@ public class FeatureSwitch extends EFactorySwitch<FeatureBuilder> {
 		if (eFeature == null || !eFeature.isMany())
 			return null; 
 
-		return new MultiValueBuilder(object);
+		return multiValueBuilder;
 	}
 
 	@Override
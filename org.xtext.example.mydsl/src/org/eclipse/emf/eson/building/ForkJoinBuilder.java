@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.building;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.eson.eFactory.EnumAttribute;
+import org.eclipse.emf.eson.eFactory.Factory;
+import org.eclipse.emf.eson.eFactory.Feature;
+import org.eclipse.emf.eson.eFactory.NewObject;
+import org.eclipse.emf.eson.util.EcoreUtil3;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Builds sibling NewObject subtrees of a containment MultiValue as ForkJoin tasks.
+ *
+ * Sibling subtrees are independent of each other until link(); each task builds
+ * its subtrees into its own forked ModelBuilder, which the parent merges, in order,
+ * once all tasks are joined.  Adding the built EObjects into their container also
+ * happens on the parent's thread, so no EObject is ever modified concurrently.
+ *
+ * EMF/Xtext lazy cross reference resolution is not thread safe, so everything which
+ * building (but not linking) resolves must be resolved by prepare() on the calling
+ * thread before forking.
+ */
+// intentionally package local, only used by ModelBuilder
+class ForkJoinBuilder {
+
+	// sibling lists smaller than this are not worth forking
+	static final int MIN_SIBLINGS_TO_FORK = 8;
+
+	private ForkJoinBuilder() {
+	}
+
+	/**
+	 * Resolves the metamodel references of the Factory on the calling thread, and counts its NewObject.
+	 * Also initializes every EClass the Factory may instantiate (see EcoreUtil3.initialize()), because
+	 * the forked tasks create and eSet() instances of these shared EClasses concurrently.
+	 *
+	 * @param preLinkingPhase if false, also resolves the EnumAttribute literals, as AttributeBuilder will need them
+	 * @return number of NewObject in the factory
+	 */
+	static int prepare(Factory factory, boolean preLinkingPhase) {
+		NameAttributeTable.get(factory).prepare();
+		Set<EClass> eClasses = Sets.newIdentityHashSet();
+		int newObjects = 0;
+		Iterator<EObject> it = factory.eAllContents();
+		while (it.hasNext()) {
+			EObject next = it.next();
+			if (next instanceof NewObject) {
+				EClass eClass = ((NewObject) next).getEClass();
+				if (eClass != null && !eClass.eIsProxy())
+					eClasses.add(eClass);
+				newObjects++;
+			} else if (next instanceof Feature) {
+				EStructuralFeature eFeature = ((Feature) next).getEFeature();
+				// the EClass of a contained NewObject without one is inferred from the reference type
+				if (eFeature instanceof EReference && !eFeature.eIsProxy() && ((EReference) eFeature).getEReferenceType() != null)
+					eClasses.add(((EReference) eFeature).getEReferenceType());
+			} else if (next instanceof EnumAttribute && !preLinkingPhase) {
+				((EnumAttribute) next).getValue();
+			}
+		}
+		for (EClass eClass : eClasses) {
+			EcoreUtil3.initialize(eClass);
+		}
+		return newObjects;
+	}
+
+	/**
+	 * Builds the sibling NewObjects in parallel, and merges the forked ModelBuilders into the parent.
+	 *
+	 * @return the built EObjects, in the order of the siblings
+	 */
+	static List<Optional<EObject>> build(ModelBuilder parent, List<NewObject> siblings, boolean preLinkingPhase) throws ModelBuilderException {
+		int chunkSize = Math.max(1, siblings.size() / (ForkJoinPool.getCommonPoolParallelism() * 4));
+		List<SiblingsTask> tasks = Lists.newArrayList();
+		for (List<NewObject> chunk : Lists.partition(siblings, chunkSize)) {
+			tasks.add(new SiblingsTask(parent.fork(), chunk, preLinkingPhase));
+		}
+		try {
+			ForkJoinTask.invokeAll(tasks);
+		} catch (ForkedBuildException e) {
+			throw e.getCause();
+		}
+		List<Optional<EObject>> built = Lists.newArrayListWithCapacity(siblings.size());
+		for (SiblingsTask task : tasks) {
+			parent.merge(task.builder);
+			built.addAll(task.join());
+		}
+		return built;
+	}
+
+	private static class SiblingsTask extends RecursiveTask<List<Optional<EObject>>> {
+		private static final long serialVersionUID = 1L;
+
+		private final ModelBuilder builder;
+		private final List<NewObject> siblings;
+		private final boolean preLinkingPhase;
+
+		SiblingsTask(ModelBuilder builder, List<NewObject> siblings, boolean preLinkingPhase) {
+			this.builder = builder;
+			this.siblings = siblings;
+			this.preLinkingPhase = preLinkingPhase;
+		}
+
+		@Override
+		protected List<Optional<EObject>> compute() {
+			List<Optional<EObject>> built = Lists.newArrayListWithCapacity(siblings.size());
+			for (NewObject sibling : siblings) {
+				try {
+					built.add(builder.build(sibling, preLinkingPhase));
+				} catch (ModelBuilderException e) {
+					throw new ForkedBuildException(e);
+				}
+			}
+			return built;
+		}
+	}
+
+	// the checked ModelBuilderException cannot pass through ForkJoinTask.compute()
+	private static class ForkedBuildException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		ForkedBuildException(ModelBuilderException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized ModelBuilderException getCause() {
+			return (ModelBuilderException) super.getCause();
+		}
+	}
+}
@@ -12,36 +12,115 @@
  */
 package org.eclipse.emf.eson.building;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.ECollections;
+import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EFactory;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.emf.eson.eFactory.Containment;
 import org.eclipse.emf.eson.eFactory.Factory;
 import org.eclipse.emf.eson.eFactory.Feature;
+import org.eclipse.emf.eson.eFactory.MultiValue;
 import org.eclipse.emf.eson.eFactory.NewObject;
+import org.eclipse.emf.eson.eFactory.Value;
+import org.eclipse.emf.eson.util.EcoreUtil3;
+import org.eclipse.emf.eson.util.IdentityBiMap;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 public class ModelBuilder {
 	private static Logger logger = Logger.getLogger(ModelBuilder.class);
 	
+	/**
+	 * Guice @Named key of a boolean which, if true, makes the EFactoryDerivedStateComputer
+	 * retain() the derived EObjects on discard, and rebuildWithoutLinking() only changed NewObject.
+	 */
+	public static final String INCREMENTAL_KEY = "eson.building.incremental";
+
+	/**
+	 * Guice @Named key of an int; Factory with at least that many NewObject are built with a ForkJoinBuilder.
+	 * 0 means never; smaller files are always better built on a single thread.
+	 */
+	public static final String PARALLEL_THRESHOLD_KEY = "eson.building.parallelThreshold";
+
+	/**
+	 * Guice @Named key of a boolean which, if true, makes the preLinkingPhase build only the EObjects, with their names and
+	 * containments, but without any of their other features; see buildExportsOnly().
+	 * This means that an object named only by a 'name' attribute (instead of the NewObject name) is not in the index.
+	 */
+	public static final String EXPORTS_ONLY_KEY = "eson.building.exportsOnly";
+
+	/**
+	 * Guice @Named key of a boolean which, if true, makes the (not preLinkingPhase) build only create the EObjects,
+	 * with their names and containments, but defer building all their other features, and linking, until materialize().
+	 * The EFactoryResource materializes what is accessed through it; see EFactoryResource.getEObject(String).
+	 */
+	public static final String LAZY_KEY = "eson.building.lazy";
+
 	protected @Inject NameAccessor nameSetter;
 	protected @Inject NewObjectExtensions newObjectExtensions; 
 	protected @Inject FeatureSwitch featureSwitch = new FeatureSwitch();
 
-	private BiMap<NewObject, EObject> mapping = HashBiMap.create();
-	private List<ReferenceBuilder> deferredLinkingFeatureBuilder = new LinkedList<ReferenceBuilder>();
+	@Inject(optional = true)
+	@Named(INCREMENTAL_KEY)
+	private boolean incremental = false;
+
+	@Inject(optional = true)
+	@Named(PARALLEL_THRESHOLD_KEY)
+	private int parallelThreshold = 0;
+	private boolean parallel = false;
+
+	@Inject(optional = true)
+	@Named(EXPORTS_ONLY_KEY)
+	private boolean exportsOnly = false;
+
+	@Inject(optional = true)
+	@Named(LAZY_KEY)
+	private boolean lazy = false;
+	private boolean deferring = false;
+	// only used if lazy; the NewObject whose EObject was built, but not yet its non-containment features
+	private Set<NewObject> unmaterialized = Sets.newIdentityHashSet();
+	// the Factory being built, so that setName() doesn't have to look for it for each NewObject
+	private @Nullable Factory factory;
+
+	private IdentityBiMap<NewObject, EObject> mapping = new IdentityBiMap<NewObject, EObject>();
+	private List<DeferredReference> deferredReferences = Lists.newArrayList();
+
+	// only used if incremental; the shallow content of each NewObject as it was when its EObject was built, see snapshot()
+	private Map<NewObject, Object[]> snapshots = Maps.newHashMap();
+	// only used if incremental; the imports and used EPackages of the Factory as they were when the model was built, see snapshotHeader()
+	private Object[] header;
+	private boolean preLinked = true;
+	private boolean linked = false;
+
+	// the previous (complete) model, kept by retain() for re-use by rebuildWithoutLinking()
+	private @Nullable IdentityBiMap<NewObject, EObject> retainedMapping;
+	private @Nullable Map<NewObject, Object[]> retainedSnapshots;
+	private Object[] retainedHeader;
+	// the container of each EObject of the retained model, as it was before the rebuild moved re-used EObjects into new containers
+	private Map<EObject, EObject> retainedContainers = Collections.emptyMap();
+	// the objects which were in the retained model, but not re-used by the last rebuildWithoutLinking(), to the EObject which replaced them (if any)
+	private Map<EObject, EObject> discarded = Collections.emptyMap();
+	private List<ReusedFeature> reusedReferenceFeatures = Lists.newArrayList();
 
 	// intentionally package local - outside clients shouldn't need to build individual NewObject, they only build(Factory)
 	// NOTE: It is the caller's (!) responsibility to add the returned EObject into another EObject (or a Resource) eContainer. 
@@ -51,17 +130,23 @@ public class ModelBuilder {
 		if (target != null) {
 			return Optional.of(target);
 		}
+		// a preLinkingPhase build must not re-use the (linked) retained EObjects, see buildWithoutLinking()
+		if (retainedMapping != null && !preLinkingPhase) {
+			target = reuse(newObject, preLinkingPhase);
+			if (target != null) {
+				return Optional.of(target);
+			}
+		}
 		Optional<EObject> eObjectOpt = createTarget(newObject);
 		if (eObjectOpt.isPresent()) {
 			EObject eObject = eObjectOpt.get();
 			setName(eObject, newObject);
-			// TODO if (preLinkingPhase) return; -- IFF we accept that:
-			//    a) refs only work with NewObject ..name.. {}, NOT via a 'name:' attribute (in which case the AttributeBuilder preLinkingPhase could be removed)
-			//    b) scoping provider will resolve nested instances by look-up of parent instead of index (TBD!)
-			//    c) empty names in parent enclosores are not permitted (needs validation!)
-			// Need to measure to impact of this optimization to see if its worth further pursuing this..
-			// If so, then the boolean preLinkingPhase would not have to be passed through all FeatureBuilder build() anymore either
-			buildFeatures(eObject, newObject.getFeatures(), preLinkingPhase);
+			// NOTE The preLinkingPhase of the exportsOnly mode doesn't get here, see buildExportsOnly()
+			if (deferring) {
+				unmaterialized.add(newObject);
+				buildContainments(eObject, newObject);
+			} else
+				buildFeatures(eObject, newObject.getFeatures(), preLinkingPhase);
 		}
 		return eObjectOpt;
 	}
@@ -78,6 +163,8 @@ public class ModelBuilder {
 			}
 			EObject target = eFactoryInstance.create(eClass );
 			mapping.put(from, target);
+			if (incremental)
+				snapshots.put(from, snapshot(from));
 			return Optional.of(target);
 		} else {
 			return Optional.absent();						
@@ -104,26 +191,434 @@ public class ModelBuilder {
 	 */
 	public Optional<EObject> buildWithoutLinking(@NonNull Factory factory, boolean preLinkingPhase) throws ModelBuilderException {
 		Preconditions.checkNotNull(factory);
+		final IdentityBiMap<NewObject, EObject> dropped = preLinkingPhase ? retainedMapping : null;
+		if (dropped == null)
+			return internalBuildWithoutLinking(factory, preLinkingPhase);
+		// e.g. a reparse retained the model, and then the index wants the preLinkingPhase model; the retained model 
+		// cannot be re-used by that, and could not be re-used later either, as the following discard only clears
+		dropRetained();
+		try {
+			return internalBuildWithoutLinking(factory, preLinkingPhase);
+		} finally {
+			setDiscarded(dropped);
+		}
+	}
+
+	private Optional<EObject> internalBuildWithoutLinking(Factory factory, boolean preLinkingPhase) throws ModelBuilderException {
+		this.factory = factory;
+		if (incremental && !preLinkingPhase)
+			header = snapshotHeader(factory);
+		preLinked = preLinkingPhase;
+		linked = false;
+		deferring = lazy && !preLinkingPhase && retainedMapping == null;
+		// never in parallel while re-using a retained model, as re-used EObjects move between (shared) containers 
+		boolean mayBeParallel = parallelThreshold > 0 && retainedMapping == null && !deferring && !(preLinkingPhase && exportsOnly);
+		int newObjects = mayBeParallel ? ForkJoinBuilder.prepare(factory, preLinkingPhase) : countNewObjects(factory);
+		// there is (at most) one EObject per NewObject, so the mapping never has to grow while building
+		mapping.ensureCapacity(newObjects);
+		if (preLinkingPhase && exportsOnly) {
+			parallel = false;
+			NewObject root = factory.getRoot();
+			return root != null ? buildExportsOnly(root) : Optional.<EObject>absent();
+		}
+		parallel = mayBeParallel && newObjects >= parallelThreshold;
 		return build(factory.getRoot(), preLinkingPhase);
 	}
+
+	private static int countNewObjects(Factory factory) {
+		int newObjects = 0;
+		for (Iterator<EObject> it = factory.eAllContents(); it.hasNext();) {
+			if (it.next() instanceof NewObject)
+				newObjects++;
+		}
+		return newObjects;
+	}
+
+	/**
+	 * Builds the EObject of a NewObject and of all the NewObject it contains, each only with its name; nothing else, no attributes
+	 * and no references, is built.  Unnamed NewObject are built as well, even if they contain nothing named, because the URI fragments
+	 * of the EObjects in the index are positional (e.g. //@a.2/@b.0), and must therefore be the same as those of a full build.
+	 * 
+	 * This is possible because the index only exports objects which are named (see EFactoryQualifiedNameProvider),
+	 * and because here names are always set from the NewObject name; references to objects named by a 'name' attribute
+	 * therefore don't work from other resources in this mode, which is why EFactoryJavaValidator warns about those.
+	 */
+	private Optional<EObject> buildExportsOnly(NewObject newObject) throws ModelBuilderException {
+		Optional<EObject> eObjectOpt = createTarget(newObject);
+		if (eObjectOpt.isPresent()) {
+			EObject eObject = eObjectOpt.get();
+			setName(eObject, newObject);
+			for (Feature feature : newObject.getFeatures()) {
+				for (NewObject child : getContainedNewObjects(feature)) {
+					Optional<EObject> childEObject = buildExportsOnly(child);
+					if (childEObject.isPresent())
+						EcoreUtil3.setOrAddValue(eObject, feature.getEFeature(), childEObject.get());
+				}
+			}
+		}
+		return eObjectOpt;
+	}
+
+	// only used if lazy, see materialize()
+	private void buildContainments(EObject eObject, NewObject newObject) throws ModelBuilderException {
+		for (Feature feature : newObject.getFeatures()) {
+			for (NewObject child : getContainedNewObjects(feature)) {
+				Optional<EObject> built = build(child, false);
+				if (built.isPresent())
+					EcoreUtil3.setOrAddValue(eObject, feature.getEFeature(), built.get());
+			}
+		}
+	}
+
+	// same checks as FeatureSwitch, ContainmentBuilder and MultiValueBuilder do
+	private List<NewObject> getContainedNewObjects(Feature feature) {
+		EStructuralFeature eFeature = feature.getEFeature();
+		Value value = feature.getValue();
+		if (value == null || !EcoreUtil3.isEContainment(eFeature) || eFeature.eIsProxy())
+			return Collections.emptyList();
+		if (value instanceof Containment) {
+			NewObject child = ((Containment) value).getValue();
+			return child != null ? Collections.singletonList(child) : Collections.<NewObject>emptyList();
+		}
+		if (!(value instanceof MultiValue) || !eFeature.isMany())
+			return Collections.emptyList();
+		List<NewObject> children = Lists.newArrayList();
+		for (Value listValue : ((MultiValue) value).getValues()) {
+			if (listValue instanceof Containment && ((Containment) listValue).getValue() != null)
+				children.add(((Containment) listValue).getValue());
+		}
+		return children;
+	}
+
+	/**
+	 * Rebuilds the (non-preLinkingPhase) model of a Factory, re-using the EObjects of the model previously retain()-ed.
+	 * 
+	 * The EObject of each NewObject which is still in the Factory and whose own features are unchanged is re-used
+	 * (with its identity), only changed and new NewObject are built again.  References of re-used EObjects are
+	 * only re-linked if they point to an unresolved proxy, to a discarded EObject, or to an EObject which (or one of whose
+	 * containers) is now in another container, as its qualified name may have changed; all of them are re-linked if the
+	 * imports or used EPackages of the Factory changed, as the same names may now resolve differently.  The EObjects of the retained model
+	 * which were not re-used are available from getDiscarded() afterwards; it is the caller's responsibility to unload them.
+	 * 
+	 * If nothing was retained, this is simply a buildWithoutLinking(factory, false).
+	 */
+	public Optional<EObject> rebuildWithoutLinking(@NonNull Factory factory) throws ModelBuilderException {
+		Preconditions.checkNotNull(factory);
+		final IdentityBiMap<NewObject, EObject> previousMapping = retainedMapping;
+		if (previousMapping == null)
+			return buildWithoutLinking(factory, false);
+		clear();
+		try {
+			Optional<EObject> root = buildWithoutLinking(factory, false);
+			relinkStaleReferences(previousMapping);
+			return root;
+		} finally {
+			setDiscarded(previousMapping);
+			dropRetained();
+			reusedReferenceFeatures.clear();
+		}
+	}
+
+	private void dropRetained() {
+		retainedMapping = null;
+		retainedSnapshots = null;
+		retainedHeader = null;
+		retainedContainers = Collections.emptyMap();
+	}
+
+	// the EObjects of the previous mapping which are not in the current one, each to the EObject now built for its NewObject (if any)
+	private void setDiscarded(IdentityBiMap<NewObject, EObject> previousMapping) {
+		discarded = Maps.newHashMap();
+		for (EObject notReused : getNotReused(previousMapping)) {
+			discarded.put(notReused, mapping.get(previousMapping.getKey(notReused)));
+		}
+	}
+
+	/**
+	 * Keeps the current model for re-use by the next rebuildWithoutLinking(), instead of clear()-ing it.
+	 * 
+	 * This is only possible in incremental mode, and if the current model was completely built (not preLinkingPhase) and linked.
+	 * It is the caller's responsibility to detach (but NOT unload) the retained EObjects from their Resource.
+	 * 
+	 * @return true if the model was retained, false if the caller should clear() and unload as usual 
+	 */
+	public boolean retain() {
+		if (!incremental || preLinked || !linked || !unmaterialized.isEmpty() || mapping.isEmpty())
+			return false;
+		retainedMapping = mapping;
+		retainedSnapshots = snapshots;
+		retainedHeader = header;
+		retainedContainers = Maps.newHashMapWithExpectedSize(mapping.size());
+		for (EObject eObject : mapping.values()) {
+			retainedContainers.put(eObject, eObject.eContainer());
+		}
+		// the rebuilt model will most likely be about as large again
+		mapping = new IdentityBiMap<NewObject, EObject>(retainedMapping.size());
+		snapshots = Maps.newHashMap();
+		deferredReferences.clear();
+		linked = false;
+		return true;
+	}
+
+	public boolean hasRetained() {
+		return retainedMapping != null;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * EObjects of the previously retained model which the last rebuildWithoutLinking() did not re-use,
+	 * or all of them, if the last build was a preLinkingPhase buildWithoutLinking(), which drops the retained model.
+	 * This includes nested EObjects; they are already detached from the model.
+	 */
+	public Set<EObject> getDiscarded() {
+		return discarded.keySet();
+	}
+
+	/**
+	 * The EObject which the last rebuildWithoutLinking() built instead of a discarded one, 
+	 * or null if its NewObject is not in the Factory anymore.
+	 */
+	public @Nullable EObject getReplacement(EObject discarded) {
+		return this.discarded.get(discarded);
+	}
+
+	/**
+	 * Re-uses the retained EObject of a NewObject, if the NewObject itself is unchanged.
+	 * Its contained NewObject may have changed, so they go through build() again, which may re-use or create them.
+	 */
+	private @Nullable EObject reuse(NewObject newObject, boolean preLinkingPhase) throws ModelBuilderException {
+		EObject eObject = retainedMapping.get(newObject);
+		if (eObject == null)
+			return null;
+		Object[] previousSnapshot = retainedSnapshots.get(newObject);
+		Object[] snapshot = snapshot(newObject);
+		if (previousSnapshot == null || !Arrays.equals(previousSnapshot, snapshot))
+			return null;
+		mapping.put(newObject, eObject);
+		snapshots.put(newObject, snapshot);
+		for (Feature feature : newObject.getFeatures()) {
+			EStructuralFeature eFeature = feature.getEFeature();
+			if (eFeature == null || eFeature.eIsProxy())
+				continue;
+			if (EcoreUtil3.isEContainment(eFeature))
+				reuseContainments(eObject, eFeature, feature.getValue(), preLinkingPhase);
+			else if (EcoreUtil3.isEReference(eFeature))
+				reusedReferenceFeatures.add(new ReusedFeature(eObject, feature));
+		}
+		return eObject;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void reuseContainments(EObject eObject, EStructuralFeature eFeature, Value value, boolean preLinkingPhase) throws ModelBuilderException {
+		List<EObject> children = Lists.newArrayList();
+		if (value instanceof Containment) {
+			addBuilt(children, (Containment) value, preLinkingPhase);
+		} else if (value instanceof MultiValue && eFeature.isMany()) {
+			for (Value listValue : ((MultiValue) value).getValues()) {
+				if (listValue instanceof Containment)
+					addBuilt(children, (Containment) listValue, preLinkingPhase);
+			}
+		}
+		if (eFeature.isMany()) {
+			// only moves/replaces what actually changed, so unchanged children keep their place
+			ECollections.setEList((EList<EObject>) eObject.eGet(eFeature), children);
+		} else if (!children.isEmpty() && eObject.eGet(eFeature) != children.get(0)) {
+			eObject.eSet(eFeature, children.get(0));
+		}
+	}
+
+	private void addBuilt(List<EObject> children, Containment containment, boolean preLinkingPhase) throws ModelBuilderException {
+		NewObject child = containment.getValue();
+		if (child == null)
+			return;
+		Optional<EObject> built = build(child, preLinkingPhase);
+		if (built.isPresent())
+			children.add(built.get());
+	}
+
+	private void relinkStaleReferences(IdentityBiMap<NewObject, EObject> previousMapping) throws ModelBuilderException {
+		if (reusedReferenceFeatures.isEmpty())
+			return;
+		boolean relinkAll = !Arrays.equals(retainedHeader, header);
+		Set<EObject> notReused = Sets.newHashSet(getNotReused(previousMapping));
+		for (ReusedFeature reused : reusedReferenceFeatures) {
+			EStructuralFeature eFeature = reused.feature.getEFeature();
+			if (relinkAll || isStale(reused.eObject, eFeature, notReused)) {
+				reused.eObject.eUnset(eFeature);
+				buildValue(reused.eObject, reused.feature, reused.feature.getValue(), false);
+			}
+		}
+	}
+
+	private boolean isStale(EObject eObject, EStructuralFeature eFeature, Set<EObject> notReused) {
+		Object value = eObject.eGet(eFeature, false);
+		List<?> values = eFeature.isMany() ? ((InternalEList<?>) value).basicList() : Collections.singletonList(value);
+		for (Object referenced : values) {
+			if (referenced instanceof EObject) {
+				EObject referencedEObject = (EObject) referenced;
+				if (referencedEObject.eIsProxy() || notReused.contains(referencedEObject) || isMoved(referencedEObject))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether a re-used EObject, or one of its containers, is now in another container than in the retained model.
+	 * E.g. if the NewObject of its container was renamed, that container was built again, and the re-used EObject moved into it.
+	 * This is false for EObjects of other Resources, which are not in the retained model.
+	 */
+	private boolean isMoved(EObject eObject) {
+		EObject current = eObject;
+		while (current != null && retainedContainers.containsKey(current)) {
+			EObject previousContainer = retainedContainers.get(current);
+			if (previousContainer != current.eContainer())
+				return true;
+			current = previousContainer;
+		}
+		return false;
+	}
+
+	private List<EObject> getNotReused(IdentityBiMap<NewObject, EObject> previousMapping) {
+		List<EObject> notReused = Lists.newArrayList();
+		for (EObject previous : previousMapping.values()) {
+			if (!mapping.containsValue(previous))
+				notReused.add(previous);
+		}
+		return notReused;
+	}
+
+	/**
+	 * The shallow content of a NewObject, i.e. everything which would lead to a different EObject (except its contained NewObjects' own content).
+	 * Xtext's (partial) parser always creates new instances for anything it re-parses, so identity of the AST elements is enough to detect change.
+	 */
+	private Object[] snapshot(NewObject newObject) {
+		List<Object> shallow = Lists.newArrayList();
+		shallow.add(newObject.getEClass());
+		shallow.add(newObject.getName());
+		for (Feature feature : newObject.getFeatures()) {
+			shallow.add(feature);
+			shallow.add(feature.getEFeature());
+			Value value = feature.getValue();
+			shallow.add(value);
+			if (value instanceof MultiValue) {
+				for (Value listValue : ((MultiValue) value).getValues()) {
+					shallow.add(listValue);
+					if (listValue instanceof Containment)
+						shallow.add(((Containment) listValue).getValue());
+				}
+			} else if (value instanceof Containment) {
+				shallow.add(((Containment) value).getValue());
+			}
+		}
+		return shallow.toArray();
+	}
+
+	/**
+	 * The imports and used EPackages of a Factory, which the (relative) names of all its references resolve against.
+	 * Like in snapshot(), identity of the AST elements is enough; but the partial parser replaces them in the lists of the
+	 * Factory itself, so the lists are copied.
+	 */
+	private static Object[] snapshotHeader(Factory factory) {
+		List<Object> header = Lists.newArrayList();
+		header.addAll(factory.getImports());
+		header.addAll(factory.getEPackages());
+		return header.toArray();
+	}
+
+	private static class ReusedFeature {
+		final EObject eObject;
+		final Feature feature;
+
+		ReusedFeature(EObject eObject, Feature feature) {
+			this.eObject = eObject;
+			this.feature = feature;
+		}
+	}
 	
 	@SuppressWarnings("null")
 	private void setName(EObject target, NewObject source) {
 		String name = source.getName();
 		if (name != null) {
-			nameSetter.setName(source, target, name);
+			if (factory != null)
+				nameSetter.setName(source, target, name, factory);
+			else
+				nameSetter.setName(source, target, name);
 		}
 	}
 
 	private void buildFeatures(EObject eObject, List<Feature> features, boolean preLinkingPhase) throws ModelBuilderException {
 		for (Feature feature : features) {
-			FeatureBuilder featureBuilder = featureSwitch.doSwitch(feature);
-			if (featureBuilder != null) {
-				featureBuilder.modelBuilder(this).container(eObject).feature(feature).build(preLinkingPhase);
-			}
+			if (parallel && buildContainmentsInParallel(eObject, feature, preLinkingPhase))
+				continue;
+			buildValue(eObject, feature, feature.getValue(), preLinkingPhase);
+		}
+	}
+
+	/**
+	 * Builds one Value of a Feature (not necessarily its direct Value, e.g. for a MultiValue) into the container.
+	 */
+	void buildValue(EObject container, Feature feature, @Nullable Value value, boolean preLinkingPhase) throws ModelBuilderException {
+		if (value == null)
+			return;
+		FeatureBuilder featureBuilder = featureSwitch.doSwitch(value);
+		if (featureBuilder != null) {
+			featureBuilder.build(this, container, feature, value, preLinkingPhase);
 		}
 	}
 
+	/**
+	 * Builds the NewObjects of a containment MultiValue with a ForkJoinBuilder, if there are enough of them.
+	 * @return true if built, false if the Feature should be built as usual
+	 */
+	private boolean buildContainmentsInParallel(EObject eObject, Feature feature, boolean preLinkingPhase) throws ModelBuilderException {
+		EStructuralFeature eFeature = feature.getEFeature();
+		if (!(feature.getValue() instanceof MultiValue) || !EcoreUtil3.isEContainment(eFeature) || !eFeature.isMany())
+			return false;
+		List<Value> values = ((MultiValue) feature.getValue()).getValues();
+		if (values.size() < ForkJoinBuilder.MIN_SIBLINGS_TO_FORK)
+			return false;
+		List<NewObject> siblings = Lists.newArrayListWithCapacity(values.size());
+		for (Value value : values) {
+			// same as what FeatureSwitch and ContainmentBuilder would do 
+			if (value instanceof Containment && ((Containment) value).getValue() != null)
+				siblings.add(((Containment) value).getValue());
+		}
+		for (Optional<EObject> built : ForkJoinBuilder.build(this, siblings, preLinkingPhase)) {
+			if (built.isPresent())
+				EcoreUtil3.setOrAddValue(eObject, eFeature, built.get());
+		}
+		return true;
+	}
+
+	/**
+	 * New ModelBuilder, sharing this one's services and mode, but with its own (empty) mapping and deferred linking.
+	 */
+	ModelBuilder fork() {
+		ModelBuilder fork = new ModelBuilder();
+		fork.nameSetter = nameSetter;
+		fork.newObjectExtensions = newObjectExtensions;
+		fork.featureSwitch = featureSwitch;
+		fork.incremental = incremental;
+		fork.parallel = parallel;
+		fork.preLinked = preLinked;
+		fork.factory = factory;
+		return fork;
+	}
+
+	/**
+	 * Adds everything a fork() built to this ModelBuilder.
+	 */
+	void merge(ModelBuilder fork) {
+		mapping.putAll(fork.mapping);
+		snapshots.putAll(fork.snapshots);
+		deferredReferences.addAll(fork.deferredReferences);
+		fork.clear();
+	}
+
 	@SuppressWarnings("null")
 	public @NonNull Optional<EObject> getBuilt(@NonNull NewObject newObject) throws ModelBuilderException {
 		Preconditions.checkNotNull(newObject);
@@ -146,7 +641,7 @@ public class ModelBuilder {
 	public @Nullable NewObject getSource(@NonNull EObject value) throws ModelBuilderException {
 		Preconditions.checkNotNull(value);
 		checkNotEmpty();
-		return mapping.inverse().get(value);
+		return mapping.getKey(value);
 	}
 
 	private void checkNotEmpty() throws ModelBuilderException {
@@ -154,30 +649,116 @@ public class ModelBuilder {
 			throw new ModelBuilderException("ModelBuilder is uninitialized, build() needs to called with non-empty Factory/NewObject before getSource()");
 	}
 
+	/**
+	 * Clears the current model; but not a retain()-ed one.
+	 */
 	public void clear() {
 		mapping.clear();
-		deferredLinkingFeatureBuilder.clear();
+		snapshots.clear();
+		deferredReferences.clear();
+		discarded = Collections.emptyMap();
+		unmaterialized.clear();
+		linked = false;
+		factory = null;
+		header = null;
 	}
 
 	public boolean isBuilt() {
 		return !mapping.isEmpty();
 	}
 
-	public void addDeferredLinkingFeatureBuilder(ReferenceBuilder builder) {
-		deferredLinkingFeatureBuilder.add(builder);
+	void addDeferredReference(DeferredReference reference) {
+		deferredReferences.add(reference);
 	}
 
 	public void link() throws ModelBuilderException {
-		Iterator<ReferenceBuilder> it = deferredLinkingFeatureBuilder.iterator();
-		while (it.hasNext()) {
-			ReferenceBuilder fb = it.next();
-			try {
-				fb.link();
-			} catch (Throwable t) {
-				logger.error("link() failed", t);
-			} finally {
-				it.remove();
+		link(this);
+	}
+
+	/**
+	 * Links the deferred references, holding the lock only while this ModelBuilder and its model are changed, but not while
+	 * the references are resolved; resolving a reference to another (lazy) EFactoryResource may materialize it, which takes
+	 * its lock, see EFactoryResource.materialize().  If resolving materializes more of this model (on this or on another thread),
+	 * its references are linked by this loop, or by the link() of that materialize(); each DeferredReference is only taken once.
+	 */
+	public void link(Object lock) throws ModelBuilderException {
+		while (true) {
+			List<DeferredReference> references;
+			synchronized (lock) {
+				if (deferredReferences.isEmpty())
+					break;
+				references = deferredReferences;
+				deferredReferences = Lists.newArrayList();
 			}
+			DeferredLinker linker = new DeferredLinker();
+			for (DeferredReference reference : references) {
+				try {
+					linker.add(reference);
+				} catch (Throwable t) {
+					logger.error("link() failed", t);
+				}
+			}
+			synchronized (lock) {
+				linker.apply();
+			}
+		}
+		linked = true;
+	}
+
+	/**
+	 * @return false if lazy, and there still are EObjects whose features were not yet built; see LAZY_KEY
+	 */
+	public boolean isMaterialized() {
+		return unmaterialized.isEmpty();
+	}
+
+	/**
+	 * Builds the deferred features of an EObject built lazily, of everything it contains, and of its containers;
+	 * they must then be linked by link(Object), which is not done here, so that the caller can do so without holding its lock.
+	 * This does nothing if the EObject is not from this ModelBuilder, or already materialized.
+	 */
+	public void materialize(@NonNull EObject eObject) throws ModelBuilderException {
+		if (unmaterialized.isEmpty())
+			return;
+		NewObject newObject = mapping.getKey(eObject);
+		if (newObject == null)
+			return;
+		materializeFeatures(newObject, eObject);
+		for (EObject container = eObject.eContainer(); container != null; container = container.eContainer()) {
+			NewObject containerNewObject = mapping.getKey(container);
+			if (containerNewObject != null)
+				materializeFeatures(containerNewObject, container);
+		}
+		Iterator<EObject> it = eObject.eAllContents();
+		while (it.hasNext()) {
+			EObject contained = it.next();
+			NewObject containedNewObject = mapping.getKey(contained);
+			if (containedNewObject != null)
+				materializeFeatures(containedNewObject, contained);
+		}
+	}
+
+	/**
+	 * Builds all deferred features; once they are linked by link(Object), the model is the same as if it had not been built lazily.
+	 */
+	public void materializeAll() throws ModelBuilderException {
+		if (unmaterialized.isEmpty())
+			return;
+		for (NewObject newObject : Lists.newArrayList(unmaterialized)) {
+			EObject eObject = mapping.get(newObject);
+			if (eObject != null)
+				materializeFeatures(newObject, eObject);
+		}
+		unmaterialized.clear();
+	}
+
+	private void materializeFeatures(NewObject newObject, EObject eObject) throws ModelBuilderException {
+		if (!unmaterialized.remove(newObject))
+			return;
+		for (Feature feature : newObject.getFeatures()) {
+			// the containments were already built, see buildContainments()
+			if (!EcoreUtil3.isEContainment(feature.getEFeature()))
+				buildValue(eObject, feature, feature.getValue(), false);
 		}
 	}
 	
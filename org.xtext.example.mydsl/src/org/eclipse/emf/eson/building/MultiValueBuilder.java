@@ -12,7 +12,9 @@
  */
 package org.eclipse.emf.eson.building;
 
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.eson.eFactory.Feature;
 import org.eclipse.emf.eson.eFactory.MultiValue;
 import org.eclipse.emf.eson.eFactory.Value;
 
@@ -23,23 +25,14 @@ import org.eclipse.emf.eson.eFactory.Value;
  */
 public class MultiValueBuilder extends FeatureBuilder {
 
-	protected MultiValue multiValue;
-	private final FeatureSwitch featureSwitch = new FeatureSwitch(); // safer not to use static here
-	
-	public MultiValueBuilder(MultiValue multiValue) {
-		this.multiValue = multiValue;
-	}
-
 	@Override
-	public void build(boolean preLinkingPhase) throws ModelBuilderException {
-		final EStructuralFeature eFeature = getFeature().getEFeature();
+	public void build(ModelBuilder modelBuilder, EObject container, Feature feature, Value value, boolean preLinkingPhase) throws ModelBuilderException {
+		final EStructuralFeature eFeature = feature.getEFeature();
 		if (eFeature.eIsProxy())
 			return;
 		
-		for (Value listValue : multiValue.getValues()) {
-			FeatureBuilder itemFeatureBuilder = featureSwitch.doSwitch(listValue);
-			if (itemFeatureBuilder != null)
-				itemFeatureBuilder.modelBuilder(getModelBuilder()).container(getContainer()).feature(getFeature()).build(preLinkingPhase);
+		for (Value listValue : ((MultiValue) value).getValues()) {
+			modelBuilder.buildValue(container, feature, listValue, preLinkingPhase);
 		}
 	}
 
@@ -14,6 +14,7 @@ package org.eclipse.emf.eson.building;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.eson.eFactory.CustomNameMapping;
@@ -23,8 +24,6 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.xtext.EcoreUtil2;
 
-import com.google.common.collect.Iterables;
-
 @NonNullByDefault
 public class NameAccessor {
 	@SuppressWarnings("null")
@@ -32,8 +31,19 @@ public class NameAccessor {
 
 	protected static final String DEFAULT_NAME_FEATURE = "name";
 
+	// if a subclass overrides getCustomNameMappings(), the shared NameAttributeTable cannot be used
+	private final boolean customNameMappings = overridesGetCustomNameMappings(getClass());
+
 	public void setName(NewObject newObject, EObject eObject, String name) {
-		EAttribute nameAttribute = getNameAttribute(newObject);
+		Factory context = EcoreUtil2.getContainerOfType(newObject, Factory.class);
+		setName(newObject, eObject, name, context);
+	}
+
+	/**
+	 * Faster than setName(NewObject, EObject, String) if the caller already knows the Factory of the NewObject.
+	 */
+	public void setName(NewObject newObject, EObject eObject, String name, @Nullable Factory context) {
+		EAttribute nameAttribute = getNameAttribute(newObject, context);
 		if (nameAttribute != null)
 			setName(eObject, name, nameAttribute);
 	}
@@ -61,31 +71,52 @@ public class NameAccessor {
 		return getNameAttribute(newObject, context);
 	}
 	
+	/**
+	 * The name EAttribute of the NewObject's EClass, according to the @Name CustomNameMapping of the Factory (or "name" by default).
+	 * This is looked up in a table which is shared by everything which uses this for the same Factory.
+	 */
 	public @Nullable EAttribute getNameAttribute(NewObject newObject, @Nullable Factory context) {
-		if (newObject.getEClass() == null)
+		EClass eClass = newObject.getEClass();
+		if (eClass == null)
 			return null;
 		if (context != null) {
+			if (!customNameMappings)
+				return NameAttributeTable.get(context).getNameAttribute(eClass);
 			for (CustomNameMapping mapping : getCustomNameMappings(context)) {
-				if (EcoreUtil2.isAssignableFrom(mapping.getEClass(), newObject.getEClass())) {
-					EAttribute attribute = mapping.getNameFeature();
-					if (attribute != null)
-						return attribute;
-					else
-						return null;
-				}
+				if (EcoreUtil2.isAssignableFrom(mapping.getEClass(), eClass))
+					return mapping.getNameFeature();
 			}
 		}
-		// If no explicit mapping found, fall back to default:
-		EStructuralFeature defaultNameFeature = newObject.getEClass().getEStructuralFeature(DEFAULT_NAME_FEATURE);
-		if (defaultNameFeature != null && defaultNameFeature instanceof EAttribute)
-			return (EAttribute) defaultNameFeature;
-		else
-			return null;
+		return getDefaultNameAttribute(eClass);
 	}
 
+	/**
+	 * The @Name CustomNameMappings of the Factory which getNameAttribute() uses, from its NameAttributeTable.
+	 * Subclasses which override this are not looked up in the (shared) table.
+	 */
 	@SuppressWarnings("null")
 	protected Iterable<CustomNameMapping> getCustomNameMappings(Factory factory) {
-		return Iterables.filter(factory.getAnnotations(), CustomNameMapping.class);
+		return NameAttributeTable.get(factory).getMappings();
+	}
+
+	private static boolean overridesGetCustomNameMappings(Class<?> clazz) {
+		for (Class<?> c = clazz; c != NameAccessor.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("getCustomNameMappings", Factory.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// look at the super class
+			}
+		}
+		return false;
+	}
+
+	static @Nullable EAttribute getDefaultNameAttribute(EClass eClass) {
+		EStructuralFeature defaultNameFeature = eClass.getEStructuralFeature(DEFAULT_NAME_FEATURE);
+		if (defaultNameFeature != null && defaultNameFeature instanceof EAttribute)
+			return (EAttribute) defaultNameFeature;
+		else
+			return null;
 	}
 
 }
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.building;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.eson.eFactory.CustomNameMapping;
+import org.eclipse.emf.eson.eFactory.EFactoryPackage;
+import org.eclipse.emf.eson.eFactory.Factory;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.xtext.EcoreUtil2;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.MapMaker;
+
+/**
+ * The name EAttribute of each EClass, for one Factory, according to its @Name CustomNameMappings.
+ *
+ * This is an Adapter on the Factory (and its CustomNameMappings), so that there is only one
+ * table per Factory, shared by whoever needs it, and so that it is invalidated as soon as
+ * the @Name annotations change.  The EClass to EAttribute lookups are cached as they are
+ * first needed.
+ *
+ * The EClasses are weakly referenced, so that those of a reloaded metamodel don't stay in the table.
+ *
+ * Reads are thread safe, but the first get() of a Factory, or the first after it was
+ * changed, must not happen concurrently with other reads.
+ */
+// intentionally package local, only used by NameAccessor and ForkJoinBuilder
+class NameAttributeTable extends AdapterImpl {
+
+	private final Factory factory;
+	// the (resolved) CustomNameMappings, in the order of the Factory; null after a change
+	private volatile @Nullable List<CustomNameMapping> mappings;
+	// weak values as well, as the name EAttribute (e.g. of a super type) would otherwise keep its EClass reachable; NO_NAME_ATTRIBUTE if none
+	private final ConcurrentMap<EClass, EAttribute> nameAttributes = new MapMaker().weakKeys().weakValues().makeMap();
+	private static final EAttribute NO_NAME_ATTRIBUTE = EcoreFactory.eINSTANCE.createEAttribute();
+
+	private NameAttributeTable(Factory factory) {
+		this.factory = factory;
+	}
+
+	static NameAttributeTable get(Factory factory) {
+		NameAttributeTable table = (NameAttributeTable) EcoreUtil.getExistingAdapter(factory, NameAttributeTable.class);
+		if (table == null) {
+			table = new NameAttributeTable(factory);
+			factory.eAdapters().add(table);
+		}
+		return table;
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == NameAttributeTable.class;
+	}
+
+	@Nullable EAttribute getNameAttribute(EClass eClass) {
+		List<CustomNameMapping> currentMappings = getMappings();
+		// unresolved proxies are new instances every time, so not worth keeping
+		if (eClass.eIsProxy())
+			return computeNameAttribute(currentMappings, eClass);
+		EAttribute nameAttribute = nameAttributes.get(eClass);
+		if (nameAttribute == null) {
+			nameAttribute = computeNameAttribute(currentMappings, eClass);
+			if (nameAttribute == null)
+				nameAttribute = NO_NAME_ATTRIBUTE;
+			nameAttributes.putIfAbsent(eClass, nameAttribute);
+		}
+		return nameAttribute != NO_NAME_ATTRIBUTE ? nameAttribute : null;
+	}
+
+	/**
+	 * Resolves the CustomNameMappings now, e.g. before reading the table from several threads.
+	 */
+	void prepare() {
+		getMappings();
+	}
+
+	/**
+	 * The (resolved) CustomNameMappings of the Factory, in their order.
+	 */
+	List<CustomNameMapping> getMappings() {
+		List<CustomNameMapping> currentMappings = mappings;
+		if (currentMappings == null) {
+			currentMappings = ImmutableList.copyOf(Iterables.filter(factory.getAnnotations(), CustomNameMapping.class));
+			for (CustomNameMapping mapping : currentMappings) {
+				// resolve now, so that lookups don't have to
+				mapping.getEClass();
+				mapping.getNameFeature();
+				if (!mapping.eAdapters().contains(this))
+					mapping.eAdapters().add(this);
+			}
+			mappings = currentMappings;
+		}
+		return currentMappings;
+	}
+
+	private static @Nullable EAttribute computeNameAttribute(List<CustomNameMapping> mappings, EClass eClass) {
+		for (CustomNameMapping mapping : mappings) {
+			if (EcoreUtil2.isAssignableFrom(mapping.getEClass(), eClass)) {
+				return mapping.getNameFeature();
+			}
+		}
+		// If no explicit mapping found, fall back to default:
+		return NameAccessor.getDefaultNameAttribute(eClass);
+	}
+
+	@Override
+	public void notifyChanged(Notification msg) {
+		if (msg.isTouch() || msg.getEventType() == Notification.RESOLVE || msg.getEventType() == Notification.REMOVING_ADAPTER)
+			return;
+		if (msg.getNotifier() == factory && msg.getFeature() != EFactoryPackage.Literals.FACTORY__ANNOTATIONS)
+			return;
+		invalidate();
+	}
+
+	private void invalidate() {
+		List<CustomNameMapping> previousMappings = mappings;
+		mappings = null;
+		nameAttributes.clear();
+		if (previousMappings != null) {
+			for (CustomNameMapping mapping : previousMappings) {
+				mapping.eAdapters().remove(this);
+			}
+		}
+	}
+}
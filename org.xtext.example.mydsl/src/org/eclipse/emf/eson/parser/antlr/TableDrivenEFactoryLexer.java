@@ -0,0 +1,333 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.parser.antlr;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.antlr.runtime.CharStream;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.RecognizerSharedState;
+import org.antlr.runtime.Token;
+import org.eclipse.emf.eson.parser.antlr.internal.InternalEFactoryLexer;
+import org.eclipse.emf.eson.parser.antlr.internal.InternalEFactoryParser;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Hand-written replacement of the generated InternalEFactoryLexer, which produces the same tokens.
+ * 
+ * The generated lexer has to predict every token with the (large) DFA which results from the custom ID
+ * (which also allows ',' and '-'), LONG_ID and LONG_UNSIGNED terminals and the keywords.  This lexer
+ * instead classifies the first character of a token with a table, and then simply scans the longest match,
+ * which is what the DFA predicts for all well-formed input.  For everything else (EOF, non-ASCII characters,
+ * unterminated STRING and ML_COMMENT, a '^' not followed by an ID, '@' not followed by 'Name'), it lets the
+ * generated lexer (which it extends) lex that token, so that also error tokens and their messages are the same.
+ * 
+ * The keyword token types are taken from the generated InternalEFactoryParser.tokenNames, so that this does not
+ * have to be adapted when the grammar changes, unless it adds new terminals or keywords which are neither words
+ * nor single characters (the first characters of which are simply always left to the generated lexer).
+ * 
+ * Use it by binding it in EFactoryRuntimeModule.configureRuntimeLexer().
+ */
+public class TableDrivenEFactoryLexer extends InternalEFactoryLexer {
+
+	private static final byte DELEGATE = 0;
+	private static final byte ANY_OTHER = 1;
+	private static final byte WS = 2;
+	private static final byte ID_START = 3;
+	private static final byte DIGIT = 4;
+	private static final byte CARET = 5;
+	private static final byte QUOTE = 6;
+	private static final byte SLASH = 7;
+	private static final byte DOT = 8;
+	private static final byte AT = 9;
+	private static final byte SINGLE_CHARACTER_KEYWORD = 10;
+
+	private static final String NAME_KEYWORD = "@Name";
+
+	// character class of the first character of a token, by ASCII character
+	private static final byte[] CHARACTER_CLASSES = new byte[128];
+	// token type of the single character keywords, by ASCII character
+	private static final int[] SINGLE_CHARACTER_KEYWORD_TYPES = new int[128];
+	// token types of the keywords which would otherwise be an ID (e.g. 'true' and '-')
+	private static final Map<String, Integer> WORD_KEYWORD_TYPES = Maps.newHashMap();
+	private static final int MAX_WORD_KEYWORD_LENGTH;
+	private static final int DOT_TYPE;
+	private static final int DOT_WILDCARD_TYPE;
+	private static final int NAME_TYPE;
+
+	static {
+		for (char c = 0; c < 128; c++) {
+			CHARACTER_CLASSES[c] = ANY_OTHER;
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n')
+				CHARACTER_CLASSES[c] = WS;
+			else if (isIdStart(c))
+				CHARACTER_CLASSES[c] = ID_START;
+			else if (c >= '0' && c <= '9')
+				CHARACTER_CLASSES[c] = DIGIT;
+		}
+		CHARACTER_CLASSES['^'] = CARET;
+		CHARACTER_CLASSES['"'] = QUOTE;
+		CHARACTER_CLASSES['\''] = QUOTE;
+		CHARACTER_CLASSES['/'] = SLASH;
+
+		Map<String, Integer> keywords = Maps.newHashMap();
+		String[] tokenNames = InternalEFactoryParser.tokenNames;
+		for (int type = 0; type < tokenNames.length; type++) {
+			String name = tokenNames[type];
+			if (name != null && name.length() > 2 && name.charAt(0) == '\'' && name.charAt(name.length() - 1) == '\'')
+				keywords.put(name.substring(1, name.length() - 1), type);
+		}
+		Integer dot = keywords.remove(".");
+		Integer dotWildcard = keywords.remove(".*");
+		Integer name = keywords.remove(NAME_KEYWORD);
+		DOT_TYPE = dot != null ? dot : -1;
+		DOT_WILDCARD_TYPE = dotWildcard != null ? dotWildcard : -1;
+		NAME_TYPE = name != null ? name : -1;
+		CHARACTER_CLASSES['.'] = dot != null && dotWildcard != null ? DOT : DELEGATE;
+		CHARACTER_CLASSES['@'] = name != null ? AT : DELEGATE;
+
+		int maxWordKeywordLength = 0;
+		for (Entry<String, Integer> keyword : keywords.entrySet()) {
+			String text = keyword.getKey();
+			char first = text.charAt(0);
+			if (isWord(text)) {
+				WORD_KEYWORD_TYPES.put(text, keyword.getValue());
+				maxWordKeywordLength = Math.max(maxWordKeywordLength, text.length());
+			} else if (first >= 128) {
+				// always delegated anyway
+			} else if (text.length() == 1 && CHARACTER_CLASSES[first] == ANY_OTHER) {
+				CHARACTER_CLASSES[first] = SINGLE_CHARACTER_KEYWORD;
+				SINGLE_CHARACTER_KEYWORD_TYPES[first] = keyword.getValue();
+			} else {
+				// also if another (single character) keyword starts with the same character
+				CHARACTER_CLASSES[first] = DELEGATE;
+			}
+		}
+		MAX_WORD_KEYWORD_LENGTH = maxWordKeywordLength;
+	}
+
+	public TableDrivenEFactoryLexer() {
+		super();
+	}
+
+	public TableDrivenEFactoryLexer(CharStream input) {
+		super(input);
+	}
+
+	public TableDrivenEFactoryLexer(CharStream input, RecognizerSharedState state) {
+		super(input, state);
+	}
+
+	@Override
+	public Token nextToken() {
+		final int c = input.LA(1);
+		if (c < 0 || c >= 128)
+			return super.nextToken();
+		int length;
+		int type;
+		switch (CHARACTER_CLASSES[c]) {
+		case ANY_OTHER:
+			length = 1;
+			type = RULE_ANY_OTHER;
+			break;
+		case WS:
+			length = 1;
+			while (isWhitespace(input.LA(length + 1)))
+				length++;
+			type = RULE_WS;
+			break;
+		case ID_START:
+			length = scanIdPart(1);
+			type = getWordType(length);
+			break;
+		case CARET:
+			if (!isIdStart(input.LA(2)))
+				return super.nextToken();
+			length = scanIdPart(2);
+			type = RULE_ID;
+			break;
+		case DIGIT:
+			length = 1;
+			while (isDigit(input.LA(length + 1)))
+				length++;
+			final int next = input.LA(length + 1);
+			if (isIdStart(next)) {
+				length = scanIdPart(length + 1);
+				type = RULE_LONG_ID;
+			} else if (next == '^') {
+				if (!isIdStart(input.LA(length + 2)))
+					return super.nextToken();
+				length = scanIdPart(length + 2);
+				type = RULE_LONG_ID;
+			} else {
+				type = RULE_LONG_UNSIGNED;
+			}
+			break;
+		case QUOTE:
+			length = scanString(c);
+			if (length < 0)
+				return super.nextToken();
+			type = RULE_STRING;
+			break;
+		case SLASH:
+			final int second = input.LA(2);
+			if (second == '/') {
+				length = scanSingleLineComment();
+				type = RULE_SL_COMMENT;
+			} else if (second == '*') {
+				length = scanMultiLineComment();
+				if (length < 0)
+					return super.nextToken();
+				type = RULE_ML_COMMENT;
+			} else {
+				length = 1;
+				type = RULE_ANY_OTHER;
+			}
+			break;
+		case DOT:
+			if (input.LA(2) == '*') {
+				length = 2;
+				type = DOT_WILDCARD_TYPE;
+			} else {
+				length = 1;
+				type = DOT_TYPE;
+			}
+			break;
+		case AT:
+			for (int i = 1; i < NAME_KEYWORD.length(); i++) {
+				if (input.LA(i + 1) != NAME_KEYWORD.charAt(i))
+					return super.nextToken();
+			}
+			length = NAME_KEYWORD.length();
+			type = NAME_TYPE;
+			break;
+		case SINGLE_CHARACTER_KEYWORD:
+			length = 1;
+			type = SINGLE_CHARACTER_KEYWORD_TYPES[c];
+			break;
+		default:
+			return super.nextToken();
+		}
+		return emitToken(type, length);
+	}
+
+	// like the generated lexer's emit(), but the token's position is taken before consuming its characters
+	private Token emitToken(int type, int length) {
+		final int start = input.index();
+		CommonToken token = new CommonToken(input, type, Token.DEFAULT_CHANNEL, start, start + length - 1);
+		token.setLine(input.getLine());
+		token.setCharPositionInLine(input.getCharPositionInLine());
+		for (int i = 0; i < length; i++) {
+			input.consume();
+		}
+		state.token = token;
+		return token;
+	}
+
+	/**
+	 * @param length number of characters of the token already matched
+	 * @return length of the token including all following ID characters
+	 */
+	private int scanIdPart(int length) {
+		while (isIdPart(input.LA(length + 1)))
+			length++;
+		return length;
+	}
+
+	private int getWordType(int length) {
+		if (length > MAX_WORD_KEYWORD_LENGTH)
+			return RULE_ID;
+		final int start = input.index();
+		Integer keywordType = WORD_KEYWORD_TYPES.get(input.substring(start, start + length - 1));
+		return keywordType != null ? keywordType : RULE_ID;
+	}
+
+	/**
+	 * @return length of the STRING, or -1 if it's not terminated
+	 */
+	private int scanString(int quote) {
+		int length = 1;
+		while (true) {
+			final int c = input.LA(length + 1);
+			if (c == CharStream.EOF)
+				return -1;
+			if (c == '\\') {
+				if (input.LA(length + 2) == CharStream.EOF)
+					return -1;
+				length += 2;
+			} else {
+				length++;
+				if (c == quote)
+					return length;
+			}
+		}
+	}
+
+	private int scanSingleLineComment() {
+		int length = 2;
+		int c = input.LA(length + 1);
+		while (c != CharStream.EOF && c != '\n' && c != '\r') {
+			length++;
+			c = input.LA(length + 1);
+		}
+		if (c == '\r' && input.LA(length + 2) == '\n')
+			length += 2;
+		else if (c == '\n')
+			length++;
+		return length;
+	}
+
+	/**
+	 * @return length of the ML_COMMENT, or -1 if it's not terminated
+	 */
+	private int scanMultiLineComment() {
+		int length = 2;
+		while (true) {
+			final int c = input.LA(length + 1);
+			if (c == CharStream.EOF)
+				return -1;
+			length++;
+			if (c == '*' && input.LA(length + 1) == '/')
+				return length + 1;
+		}
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isIdStart(int c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == ',' || c == '-';
+	}
+
+	private static boolean isIdPart(int c) {
+		return isIdStart(c) || isDigit(c);
+	}
+
+	// whether the generated lexer would lex the keyword as an ID, if it wasn't a keyword
+	private static boolean isWord(String text) {
+		if (!isIdStart(text.charAt(0)))
+			return false;
+		for (int i = 1; i < text.length(); i++) {
+			if (!isIdPart(text.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+}
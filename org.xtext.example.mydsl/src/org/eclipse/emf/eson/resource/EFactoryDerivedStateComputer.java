@@ -17,8 +17,11 @@ import java.util.List;
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.notify.Adapter;
 import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.eson.building.ModelBuilder;
 import org.eclipse.emf.eson.building.ModelBuilderException;
 import org.eclipse.emf.eson.eFactory.Factory;
@@ -101,22 +104,27 @@ public class EFactoryDerivedStateComputer implements IDerivedStateComputer {
     	EFactoryResource efResource = (EFactoryResource) resource;
 		ModelBuilder builder = efResource.getBuilder();
 		try {
-			Optional<EObject> eModel = builder.buildWithoutLinking(model, preLinkingPhase);
+			// @see ModelBuilder.INCREMENTAL_KEY
+			Optional<EObject> eModel = builder.hasRetained() && !preLinkingPhase
+					? builder.rebuildWithoutLinking(model)
+					: builder.buildWithoutLinking(model, preLinkingPhase);
 			
 			if (eModel.isPresent()) {
+				// The EFactoryAdapter is only added after this, because we don't
+				// want/need to get the notifications from our ModelBuilder - only
+				// from external clients (e.g. Generic Ecore editor UI, etc.)
+				EObject object = eModel.get();
+				resource.getContents().add(object);
+				// only once the model is in the Resource, as linking resolves the references through it, see DeferredLinker
 				if (!preLinkingPhase) {
 					builder.link();
 				}
-				// Do add() only AFTER the buildWithoutLinking() + link(),
-				// because we don't want/need to get the notifications from our
-				// ModelBuilder - only from external clients (e.g. Generic Ecore
-				// editor UI, etc.)
-				EObject object = eModel.get();
-				resource.getContents().add(object);
 			} else {
 				builder.clear();
 			}
+			unloadDiscarded(resource, builder);
 		} catch (ModelBuilderException e) {
+			unloadDiscarded(resource, builder);
 			builder.clear();
 			logger.error(resource.getURI() + " could not be transformed by ModelBuilder (this may be normal if incomplete while editing; but please raise a bug attaching your *.eson so that the code can be improved to log this yet continue to build the rest of the internal model)", e);
 			// No need for something like this:
@@ -128,6 +136,15 @@ public class EFactoryDerivedStateComputer implements IDerivedStateComputer {
 		resource.getCache().clear(resource);
 	}
 
+	/**
+	 * Completes a resource which EFactoryResourceStorageFacade loaded from its cache instead of parsing it.
+	 * Its derived EObjects and their mapping to the NewObjects were loaded as well, so there is nothing to build.
+	 */
+	public void installLoadedFromStorage(EFactoryResource resource) {
+		if (EcoreUtil2.getAdapter(resource.eAdapters(), EFactoryAdapter.class) == null)
+			resource.eAdapters().add(eFactoryAdapterProvider.get());
+	}
+
 	protected Factory getFactory(DerivedStateAwareResource resource) {
 		if (resource.getContents().isEmpty()) {
 			return null;
@@ -153,7 +170,10 @@ public class EFactoryDerivedStateComputer implements IDerivedStateComputer {
 		// implementation again inspired by XcoreModelAssociator and JvmModelAssociator 
 		EFactoryResource efResource = (EFactoryResource) resource;
 		ModelBuilder builder = efResource.getBuilder();
-		builder.clear();
+		// if retained, the derived EObjects are only detached here, and unloaded later by unloadDiscarded() if they are not re-used
+		boolean retained = builder.retain();
+		if (!retained)
+			builder.clear();
 		
 	    EList<EObject> contents = resource.getContents();
 	    if (contents.size() > 1) // first content (size 1) is original Xtext (non-derived) model
@@ -162,7 +182,8 @@ public class EFactoryDerivedStateComputer implements IDerivedStateComputer {
 	    	// note start index 1 instead of 0 - we need to skip first content, see above
 	    	for (int i = 1; i< contents.size(); i++) {
 				EObject eObject = contents.get(i);
-	    		unloader.unloadRoot(eObject);
+				if (!retained)
+					unloader.unloadRoot(eObject);
 	    		derived.add(eObject);
 			}
 	    	try {
@@ -173,6 +194,26 @@ public class EFactoryDerivedStateComputer implements IDerivedStateComputer {
 	    }
 	}
 
+	/**
+	 * Turns the EObjects of a retained model which the ModelBuilder did not re-use into proxies, like the IReferableElementsUnloader does
+	 * for a full rebuild; we cannot use it here, because these EObjects are already detached from the Resource.  The proxy URI is that
+	 * of the EObject which replaced it, so that references from other Resources resolve to the replacement.  An EObject without
+	 * replacement gets the URI of the Resource, without fragment, which resolves to nothing; its own URI fragment is relative to
+	 * wherever it was detached, and would resolve to some unrelated EObject of the Resource.
+	 */
+	protected void unloadDiscarded(DerivedStateAwareResource resource, ModelBuilder builder) {
+		for (EObject discarded : builder.getDiscarded()) {
+			URI proxyURI = null;
+			EObject replacement = builder.getReplacement(discarded);
+			if (replacement != null && replacement.eResource() == resource)
+				proxyURI = EcoreUtil.getURI(replacement);
+			else
+				proxyURI = resource.getURI().trimFragment();
+			discarded.eAdapters().clear();
+			((InternalEObject) discarded).eSetProxyURI(proxyURI);
+		}
+	}
+
 	protected  void handleRuntimeException(String method, Resource resource, RuntimeException e) {
 		String uri = "?";
 		if (resource != null && resource.getURI() != null) {
@@ -12,27 +12,162 @@
  */
 package org.eclipse.emf.eson.resource;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.eson.building.ModelBuilder;
 import org.eclipse.emf.eson.building.ModelBuilderException;
+import org.eclipse.emf.eson.eFactory.EFactoryFactory;
+import org.eclipse.emf.eson.eFactory.Factory;
 import org.eclipse.emf.eson.eFactory.NewObject;
+import org.eclipse.emf.eson.serialization.EFactoryAdapter;
+import org.eclipse.jdt.annotation.Nullable;
 
+import org.eclipse.xtext.nodemodel.ICompositeNode;
+import org.eclipse.xtext.parser.IParseResult;
+import org.eclipse.xtext.parser.ParseResult;
 import org.eclipse.xtext.resource.DerivedStateAwareResource;
+import org.eclipse.xtext.resource.IDerivedStateComputer;
+import org.eclipse.xtext.resource.persistence.IResourceStorageFacade;
+import org.eclipse.xtext.resource.persistence.ResourceStorageLoadable;
+import org.eclipse.xtext.util.CancelIndicator;
 
 import com.google.common.base.Optional;
+import com.google.common.hash.HashCode;
+import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
 
 public class EFactoryResource extends DerivedStateAwareResource {
 	private static final Logger logger = Logger.getLogger(EFactoryDerivedStateComputer.class);
 
+	/**
+	 * Load option to releaseSource() right after loading, for batch tools which only need the derived EObjects.
+	 * @see org.eclipse.emf.eson.EFactoryStandaloneSetup#setHeadless(org.eclipse.emf.ecore.resource.ResourceSet)
+	 */
+	public static final String OPTION_HEADLESS = "eson.headless";
+
 	@Inject private ModelBuilder builder;
+
+	@Inject(optional = true) private IResourceStorageFacade resourceStorageFacade;
+
+	@Inject(optional = true) private IDerivedStateComputer derivedStateComputer;
+
+	private volatile boolean sourceReleased = false;
+
+	// guards the lazy building of the derived model, see materialize(); unlike the monitor of this Resource it is private,
+	// and never held while resolving references to other Resources, so that Resources which reference each other cannot
+	// deadlock when they are materialized on different threads
+	private final Object materializeLock = new Object();
+	// guarded by materializeLock; the EFactoryAdapter is suspended while > 0
+	private int materializing = 0;
+
+	// of the content the current parse result was parsed from, see getContentHash()
+	private volatile @Nullable HashCode contentHash;
 	
 	public boolean isBuilt() {
+		if (sourceReleased)
+			return getContents().size() > 1;
 		return getBuilder().isBuilt();
 	}
+
+	@Override
+	public void load(Map<?, ?> options) throws IOException {
+		boolean wasLoaded = isLoaded();
+		super.load(options);
+		if (!wasLoaded && options != null && Boolean.TRUE.equals(options.get(OPTION_HEADLESS))) {
+			saveToStorage();
+			releaseSource();
+		}
+	}
+
+	/**
+	 * Builds and links the complete derived model, and then releases the node model and the
+	 * Factory (replaced by an empty one, so that the URI fragments of the derived EObjects don't change).
+	 * The errors and warnings are kept, with their line and column, but can no longer be navigated to.
+	 * 
+	 * This resource can then only be read, not edited or serialized any more; 
+	 * getEFactoryNewObject() returns null for all EObjects.
+	 */
+	public void releaseSource() {
+		if (sourceReleased || getContents().isEmpty())
+			return;
+		materialize();
+		resolveLazyCrossReferences(CancelIndicator.NullImpl);
+		synchronized (materializeLock) {
+			if (sourceReleased)
+				return;
+			releaseNodes(getErrors());
+			releaseNodes(getWarnings());
+			EFactoryAdapter adapter = (EFactoryAdapter) EcoreUtil.getExistingAdapter(this, EFactoryAdapter.class);
+			if (adapter != null)
+				eAdapters().remove(adapter);
+			getBuilder().clear();
+			Factory placeholder = EFactoryFactory.eINSTANCE.createFactory();
+			getContents().set(0, placeholder);
+			IParseResult parseResult = getParseResult();
+			if (parseResult instanceof ParseResult) {
+				((ParseResult) parseResult).setRootNode(null);
+				((ParseResult) parseResult).setRootASTElement(placeholder);
+			}
+			sourceReleased = true;
+			getCache().clear(this);
+		}
+	}
+
+	public boolean isSourceReleased() {
+		return sourceReleased;
+	}
+
+	@Override
+	protected void updateInternalState(IParseResult oldParseResult, IParseResult newParseResult) {
+		contentHash = null;
+		super.updateInternalState(oldParseResult, newParseResult);
+	}
+
+	/**
+	 * The hash of the content which this resource was parsed from, computed only once per parse; this is what the
+	 * EFactoryResourceStorageFacade keys its cache entries by.  Before this resource is loaded, it is that of what
+	 * the URIConverter reads, which is also what it would be parsed from.
+	 * 
+	 * @return null if the content cannot be read
+	 */
+	public @Nullable HashCode getContentHash() {
+		HashCode hash = contentHash;
+		if (hash != null)
+			return hash;
+		IParseResult parseResult = getParseResult();
+		ICompositeNode rootNode = parseResult != null ? parseResult.getRootNode() : null;
+		try {
+			if (rootNode != null) {
+				hash = EFactoryResourceStorageFacade.hash(rootNode.getText().getBytes(getEncoding()));
+			} else {
+				URIConverter uriConverter = getResourceSet() != null ? getResourceSet().getURIConverter() : URIConverter.INSTANCE;
+				try (InputStream in = uriConverter.createInputStream(getURI())) {
+					hash = EFactoryResourceStorageFacade.hash(ByteStreams.toByteArray(in));
+				}
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		contentHash = hash;
+		return hash;
+	}
+
+	// replaces the diagnostics, which (like XtextSyntaxDiagnostic) may compute their position from a node, by a copy
+	private void releaseNodes(List<Diagnostic> diagnostics) {
+		for (ListIterator<Diagnostic> it = diagnostics.listIterator(); it.hasNext();) {
+			it.set(new ReleasedDiagnostic(it.next()));
+		}
+	}
 	
 	public  NewObject getEFactoryNewObject(EObject eObject) {
 		if (builder == null) {
@@ -58,12 +193,104 @@ public class EFactoryResource extends DerivedStateAwareResource {
 	@SuppressWarnings("null")
 	public  Optional<EObject> getEFactoryEObject(NewObject nObject) throws ModelBuilderException {
 		ModelBuilder _builder = getBuilder();
-		if (_builder.isBuilt())
-			return _builder.getBuilt(nObject);
-		else
+		if (_builder.isBuilt()) {
+			Optional<EObject> eObject = _builder.getBuilt(nObject);
+			if (eObject.isPresent())
+				materialize(eObject.get());
+			return eObject;
+		} else
 			return Optional.absent();
 	}
 
+	/**
+	 * Writes the complete (materialized and linked) derived state to the EFactoryResourceStorageFacade cache, if enabled.
+	 * This is for builders (see EFactoryResourceStorageFacade.saveResource()) and for batch tools (see OPTION_HEADLESS);
+	 * an editor does not write an entry for the content after each of its changes.
+	 */
+	public void saveToStorage() {
+		final IResourceStorageFacade _facade = resourceStorageFacade;
+		if (!(_facade instanceof EFactoryResourceStorageFacade) || !((EFactoryResourceStorageFacade) _facade).isEnabled()
+				|| isLoadedFromStorage() || sourceReleased)
+			return;
+		// installs the derived state, if it isn't yet
+		getContents();
+		materialize();
+		resolveLazyCrossReferences(CancelIndicator.NullImpl);
+		((EFactoryResourceStorageFacade) _facade).save(this);
+	}
+
+	/**
+	 * The derived state is part of what is loaded from the cache, so installDerivedState() is never called for it.
+	 */
+	@Override
+	public void loadFromStorage(ResourceStorageLoadable storageInputStream) throws IOException {
+		super.loadFromStorage(storageInputStream);
+		if (derivedStateComputer instanceof EFactoryDerivedStateComputer)
+			((EFactoryDerivedStateComputer) derivedStateComputer).installLoadedFromStorage(this);
+	}
+
+	/**
+	 * Resolves the fragment, and materializes the EObject if it's a derived one which was built lazily.
+	 * This is how a reference from another Resource (e.g. found via the index) reaches a derived EObject,
+	 * so that only that EObject (and what it contains) has to be materialized, not the entire model.
+	 */
+	@Override
+	public EObject getEObject(String uriFragment) {
+		// e.g. the proxy of a discarded EObject without replacement, see EFactoryDerivedStateComputer.unloadDiscarded()
+		if (uriFragment == null)
+			return null;
+		EObject eObject = super.getEObject(uriFragment);
+		if (eObject != null)
+			materialize(eObject);
+		return eObject;
+	}
+
+	/**
+	 * Materializes the entire derived model, if it was built lazily, see ModelBuilder.LAZY_KEY.
+	 * Clients which walk the derived model themselves (instead of starting from getEFactoryEObject(), getEObject() etc.) must call this first.
+	 */
+	public void materialize() {
+		materialize(null);
+	}
+
+	/**
+	 * The features are built holding the materializeLock, but they are linked without it (except while setting the linked values),
+	 * as linking resolves references to other Resources, which may have to materialize those.  Another thread which accesses
+	 * an EObject of this Resource meanwhile (e.g. as the target of such a reference) may therefore get it before its own references
+	 * are all set; as with any other proxy, only the EObject itself is needed for that.
+	 */
+	protected void materialize(@Nullable EObject eObject) {
+		final ModelBuilder _builder = getBuilder();
+		EFactoryAdapter adapter;
+		synchronized (materializeLock) {
+			if (_builder.isMaterialized())
+				return;
+			// the EFactoryAdapter must not try to write the features we build now back into the EFactory model
+			adapter = (EFactoryAdapter) EcoreUtil.getExistingAdapter(this, EFactoryAdapter.class);
+			if (adapter != null && materializing++ == 0)
+				adapter.setSuspended(true);
+			try {
+				if (eObject != null)
+					_builder.materialize(eObject);
+				else
+					_builder.materializeAll();
+			} catch (ModelBuilderException e) {
+				logger.error(getURI() + " could not be materialized by ModelBuilder", e);
+			}
+		}
+		try {
+			_builder.link(materializeLock);
+		} catch (ModelBuilderException e) {
+			logger.error(getURI() + " could not be linked by ModelBuilder", e);
+		} finally {
+			synchronized (materializeLock) {
+				if (adapter != null && --materializing == 0)
+					adapter.setSuspended(false);
+				getCache().clear(this);
+			}
+		}
+	}
+
 	// package-private, as only used by EFactoryDerivedStateComputer
 	 ModelBuilder getBuilder() throws IllegalStateException {
 		// written in this weird style just to satisfy Eclipse' slightly dumb null check
@@ -94,9 +321,12 @@ public class EFactoryResource extends DerivedStateAwareResource {
 		final EFactoryResource eFactoryResource = (EFactoryResource) r;
 		if (!eFactoryResource.isBuilt())
 			return null;
+		if (eFactoryResource.isSourceReleased())
+			return eFactoryResource.getContents().get(1);
 		org.eclipse.emf.eson.eFactory.Factory factory = eFactoryResource.getEFactoryFactory();
 		if (factory == null)
 			return null;
+		eFactoryResource.materialize();
 		try {
 			return eFactoryResource.getEFactoryEObject(factory.getRoot()).orNull();
 		} catch (ModelBuilderException e) {
@@ -117,4 +347,43 @@ public class EFactoryResource extends DerivedStateAwareResource {
 		}
 		return clazz.cast(object);
 	}
+
+	private static class ReleasedDiagnostic implements Diagnostic {
+		private final String message;
+		private final String location;
+		private final int line;
+		private final int column;
+
+		ReleasedDiagnostic(Diagnostic diagnostic) {
+			message = diagnostic.getMessage();
+			location = diagnostic.getLocation();
+			line = diagnostic.getLine();
+			column = diagnostic.getColumn();
+		}
+
+		@Override
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String getLocation() {
+			return location;
+		}
+
+		@Override
+		public int getLine() {
+			return line;
+		}
+
+		@Override
+		public int getColumn() {
+			return column;
+		}
+
+		@Override
+		public String toString() {
+			return location + ":" + line + ":" + column + ": " + message;
+		}
+	}
 }
@@ -0,0 +1,31 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.resource;
+
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.eson.util.VersionedEPackageRegistry;
+import org.eclipse.xtext.resource.XtextResourceSet;
+
+/**
+ * XtextResourceSet whose package registry is (unless another one is set) a VersionedEPackageRegistry,
+ * so that EPackageRegistry can tell in constant time whether its nsURIs changed, see EFactoryScopeProvider.
+ */
+public class EFactoryResourceSet extends XtextResourceSet {
+
+	@Override
+	public EPackage.Registry getPackageRegistry() {
+		if (packageRegistry == null)
+			packageRegistry = new VersionedEPackageRegistry(EPackage.Registry.INSTANCE);
+		return packageRegistry;
+	}
+}
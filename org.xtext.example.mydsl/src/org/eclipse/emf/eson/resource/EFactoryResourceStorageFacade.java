@@ -0,0 +1,313 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.xtext.generator.IFileSystemAccessExtension3;
+import org.eclipse.xtext.resource.IReferenceDescription;
+import org.eclipse.xtext.resource.IResourceDescription;
+import org.eclipse.xtext.resource.persistence.IResourceStorageFacade;
+import org.eclipse.xtext.resource.persistence.ResourceStorageLoadable;
+import org.eclipse.xtext.resource.persistence.ResourceStorageWritable;
+import org.eclipse.xtext.resource.persistence.StorageAwareResource;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Persistent cache of EFactoryResource, so that unchanged files don't have to be parsed and built again.
+ *
+ * An entry stores the parsed Factory, the derived EObjects, the node model and the
+ * NewObject to EObject mapping of the ModelBuilder (see EFactoryResourceStorageWritable),
+ * in a file named by the hash of the source file's content and the metamodel version.
+ * So there is nothing to invalidate: a changed file (or metamodel) simply has another key,
+ * and stale entries can be deleted at any time.
+ *
+ * The derived EObjects are stored linked, i.e. with their references to other resources
+ * resolved; so an entry also depends on the content of those resources.  It therefore starts
+ * with the URI and content hash of each resource referenced when it was written, and is only
+ * used if all of them still have the same content (see getDependencies()).
+ *
+ * The cache is used by the StorageAwareResource load() which EFactoryResource inherits;
+ * an entry is written by builders and batch tools, see EFactoryResource.saveToStorage().
+ * When the entries exceed CACHE_MAX_MEGABYTES_KEY, the least recently used ones are deleted.
+ * It is disabled unless a directory is bound to CACHE_DIRECTORY_KEY.
+ */
+@Singleton
+public class EFactoryResourceStorageFacade implements IResourceStorageFacade {
+	private static final Logger logger = Logger.getLogger(EFactoryResourceStorageFacade.class);
+
+	public static final String CACHE_DIRECTORY_KEY = "eson.cache.directory";
+	// bind a new value whenever the EPackages used by the cached files change incompatibly
+	public static final String METAMODEL_VERSION_KEY = "eson.cache.metamodelVersion";
+	/**
+	 * Guice @Named key of an int, the size of the cache directory (in MB) above which the least recently used entries are deleted.
+	 */
+	public static final String CACHE_MAX_MEGABYTES_KEY = "eson.cache.maxMegabytes";
+
+	// increment whenever what EFactoryResourceStorageWritable (or writeDependencies()) writes changes
+	private static final int FORMAT_VERSION = 2;
+	private static final String FILE_EXTENSION = ".esonbin";
+	// listing the directory for each entry would make a build quadratic, so the size is only checked after every so many entries
+	private static final int SAVES_PER_EVICTION = 100;
+
+	@Inject(optional = true) @Named(CACHE_DIRECTORY_KEY)
+	private @Nullable String cacheDirectory;
+
+	@Inject(optional = true) @Named(METAMODEL_VERSION_KEY)
+	private @Nullable String metamodelVersion;
+
+	@Inject(optional = true) @Named(CACHE_MAX_MEGABYTES_KEY)
+	private int maxMegabytes = 512;
+
+	private final AtomicInteger savesSinceEviction = new AtomicInteger();
+
+	public boolean isEnabled() {
+		return !Strings.isNullOrEmpty(cacheDirectory);
+	}
+
+	@Override
+	public boolean shouldLoadFromStorage(StorageAwareResource resource) {
+		if (!(resource instanceof EFactoryResource))
+			return false;
+		File file = getCacheFile(resource);
+		if (file == null || !file.isFile())
+			return false;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			for (Entry<URI, HashCode> dependency : readDependencies(in).entrySet()) {
+				if (!dependency.getValue().equals(getContentHash(resource.getResourceSet(), dependency.getKey())))
+					return false;
+			}
+			return true;
+		} catch (IOException | RuntimeException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public ResourceStorageLoadable getOrCreateResourceStorageLoadable(StorageAwareResource resource) {
+		File file = getCacheFile(resource);
+		if (file == null)
+			throw new IllegalStateException("No cache entry for " + resource.getURI());
+		try {
+			// marks the entry as recently used, see evict()
+			file.setLastModified(System.currentTimeMillis());
+			// not buffered by the DataInputStream itself, so that the loadable continues right after the dependencies
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			readDependencies(in);
+			return createResourceStorageLoadable(in);
+		} catch (FileNotFoundException e) {
+			throw new IllegalStateException("Cache entry for " + resource.getURI() + " was deleted", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cache entry for " + resource.getURI() + " could not be read", e);
+		}
+	}
+
+	@Override
+	public ResourceStorageLoadable createResourceStorageLoadable(InputStream inputStream) {
+		return new EFactoryResourceStorageLoadable(inputStream, true);
+	}
+
+	@Override
+	public ResourceStorageWritable createResourceStorageWritable(OutputStream outputStream) {
+		return new EFactoryResourceStorageWritable(outputStream, true);
+	}
+
+	/**
+	 * Writes to the cache directory, not to the IFileSystemAccessExtension3, as entries are keyed by content, not by URI.
+	 */
+	@Override
+	public void saveResource(StorageAwareResource resource, IFileSystemAccessExtension3 fsa) {
+		if (resource instanceof EFactoryResource)
+			((EFactoryResource) resource).saveToStorage();
+	}
+
+	@Override
+	public boolean hasStorageFor(URI uri) {
+		// can't tell without the resource's content
+		return false;
+	}
+
+	/**
+	 * Writes the cache entry for the (completely built and linked) resource, unless there already is one.
+	 * Only resources without syntax or linking errors are cached, as their errors are not stored.
+	 */
+	public void save(EFactoryResource resource) {
+		if (!resource.getErrors().isEmpty() || !resource.isBuilt())
+			return;
+		File file = getCacheFile(resource);
+		if (file == null || file.isFile())
+			return;
+		File tempFile = null;
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			// written to a temporary file first, so that concurrent readers (and writers) never see a partial entry
+			tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+				writeDependencies(new DataOutputStream(out), getDependencies(resource));
+				createResourceStorageWritable(out).writeResource(resource);
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not cache " + resource.getURI() + " in " + file, e);
+			if (tempFile != null)
+				tempFile.delete();
+			return;
+		}
+		if (savesSinceEviction.incrementAndGet() >= SAVES_PER_EVICTION) {
+			savesSinceEviction.set(0);
+			evict(file.getParentFile());
+		}
+	}
+
+	/**
+	 * Deletes the least recently written or loaded entries, until the entries of the directory are at most maxMegabytes together.
+	 * Another process may use the same directory, so an entry may disappear at any time; that is no different from a cache miss.
+	 */
+	protected void evict(File directory) {
+		File[] entries = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (entries == null)
+			return;
+		long size = 0;
+		long[] lastModified = new long[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			size += entries[i].length();
+			lastModified[i] = entries[i].lastModified();
+		}
+		long maxSize = maxMegabytes * 1024L * 1024L;
+		if (size <= maxSize)
+			return;
+		// sorted by the times read above, as the files may change while sorting
+		Integer[] order = new Integer[entries.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, Comparator.comparingLong(i -> lastModified[i]));
+		for (int i = 0; i < order.length && size > maxSize; i++) {
+			File entry = entries[order[i]];
+			long length = entry.length();
+			if (entry.delete())
+				size -= length;
+		}
+	}
+
+	/**
+	 * @return the file of the cache entry for the current content of the resource, null if disabled or the content cannot be read
+	 */
+	protected @Nullable File getCacheFile(StorageAwareResource resource) {
+		final String directory = cacheDirectory;
+		if (Strings.isNullOrEmpty(directory))
+			return null;
+		HashCode contentHash = ((EFactoryResource) resource).getContentHash();
+		if (contentHash == null)
+			return null;
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putBytes(contentHash.asBytes());
+		hasher.putInt(FORMAT_VERSION);
+		hasher.putString(Strings.nullToEmpty(metamodelVersion), Charsets.UTF_8);
+		return new File(directory, hasher.hash().toString() + FILE_EXTENSION);
+	}
+
+	/**
+	 * The other resources which the resource references, with the hash of their current content.
+	 * These are the resources of the resolved targets of its IResourceDescription's reference descriptions;
+	 * not those of the unresolved proxies, as the (lazy linking) proxies of all references of an Xtext resource
+	 * point into that resource itself.  A resource whose content cannot be read (e.g. that of a registered
+	 * EPackage) is not included; such a metamodel is covered by METAMODEL_VERSION_KEY.
+	 */
+	protected Map<URI, HashCode> getDependencies(EFactoryResource resource) {
+		Map<URI, HashCode> dependencies = Maps.newLinkedHashMap();
+		ResourceSet resourceSet = resource.getResourceSet();
+		IResourceDescription description = resource.getResourceServiceProvider().getResourceDescriptionManager().getResourceDescription(resource);
+		for (IReferenceDescription reference : description.getReferenceDescriptions()) {
+			URI uri = reference.getTargetEObjectUri().trimFragment();
+			if (uri.equals(resource.getURI()) || dependencies.containsKey(uri))
+				continue;
+			HashCode contentHash = getContentHash(resourceSet, uri);
+			if (contentHash != null)
+				dependencies.put(uri, contentHash);
+		}
+		return dependencies;
+	}
+
+	/**
+	 * @return the hash of the current content of the resource with that URI; that of an EFactoryResource which is loaded (e.g. open
+	 * in an editor, with changes which are not saved yet) is its getContentHash(), of any other the hash of what the URIConverter reads
+	 */
+	protected @Nullable HashCode getContentHash(@Nullable ResourceSet resourceSet, URI uri) {
+		if (EPackage.Registry.INSTANCE.containsKey(uri.toString())
+				|| resourceSet != null && resourceSet.getPackageRegistry().containsKey(uri.toString()))
+			return null;
+		Resource loaded = resourceSet != null ? resourceSet.getResource(uri, false) : null;
+		if (loaded instanceof EFactoryResource && loaded.isLoaded())
+			return ((EFactoryResource) loaded).getContentHash();
+		URIConverter uriConverter = resourceSet != null ? resourceSet.getURIConverter() : URIConverter.INSTANCE;
+		try (InputStream in = uriConverter.createInputStream(uri)) {
+			return hash(ByteStreams.toByteArray(in));
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static HashCode hash(byte[] content) {
+		return Hashing.sha256().hashBytes(content);
+	}
+
+	private static void writeDependencies(DataOutputStream out, Map<URI, HashCode> dependencies) throws IOException {
+		out.writeInt(dependencies.size());
+		for (Entry<URI, HashCode> dependency : dependencies.entrySet()) {
+			out.writeUTF(dependency.getKey().toString());
+			out.writeUTF(dependency.getValue().toString());
+		}
+		out.flush();
+	}
+
+	private static Map<URI, HashCode> readDependencies(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		Map<URI, HashCode> dependencies = Maps.newLinkedHashMap();
+		for (int i = 0; i < size; i++)
+			dependencies.put(URI.createURI(in.readUTF()), HashCode.fromString(in.readUTF()));
+		return dependencies;
+	}
+}
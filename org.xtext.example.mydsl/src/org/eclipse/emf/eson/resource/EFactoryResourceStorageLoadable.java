@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.resource;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.eson.eFactory.Factory;
+import org.eclipse.emf.eson.eFactory.NewObject;
+import org.eclipse.xtext.resource.persistence.ResourceStorageLoadable;
+import org.eclipse.xtext.resource.persistence.StorageAwareResource;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Restores the ModelBuilder's NewObject to EObject mapping written by EFactoryResourceStorageWritable,
+ * so that a resource loaded from the cache can be validated, navigated etc. like a built one.
+ */
+// intentionally package local, only used by EFactoryResourceStorageFacade
+class EFactoryResourceStorageLoadable extends ResourceStorageLoadable {
+
+	EFactoryResourceStorageLoadable(InputStream in, boolean storeNodeModel) {
+		super(in, storeNodeModel);
+	}
+
+	@Override
+	protected void loadEntries(StorageAwareResource resource, ZipInputStream zipIn) throws IOException {
+		super.loadEntries(resource, zipIn);
+		if (resource instanceof EFactoryResource) {
+			ZipEntry entry = zipIn.getNextEntry();
+			if (entry == null || !EFactoryResourceStorageWritable.MAPPING_ENTRY.equals(entry.getName()))
+				throw new IOException("Cache entry for " + resource.getURI() + " has no " + EFactoryResourceStorageWritable.MAPPING_ENTRY);
+			readMapping((EFactoryResource) resource, new DataInputStream(zipIn));
+		}
+	}
+
+	private void readMapping(EFactoryResource resource, DataInputStream in) throws IOException {
+		List<NewObject> newObjects = getNewObjects(resource);
+		List<EObject> derivedObjects = getDerivedObjects(resource);
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			int newObjectIndex = in.readInt();
+			int derivedIndex = in.readInt();
+			if (newObjectIndex >= newObjects.size() || derivedIndex >= derivedObjects.size())
+				throw new IOException("Cache entry for " + resource.getURI() + " does not match its content");
+			resource.putEObjectNewObjectPair(derivedObjects.get(derivedIndex), newObjects.get(newObjectIndex));
+		}
+	}
+
+	/**
+	 * All NewObject of the Factory (the first root of the resource), in eAllContents() order.
+	 */
+	static List<NewObject> getNewObjects(StorageAwareResource resource) {
+		List<NewObject> newObjects = Lists.newArrayList();
+		if (resource.getContents().isEmpty() || !(resource.getContents().get(0) instanceof Factory))
+			return newObjects;
+		Iterator<EObject> it = resource.getContents().get(0).eAllContents();
+		while (it.hasNext()) {
+			EObject next = it.next();
+			if (next instanceof NewObject)
+				newObjects.add((NewObject) next);
+		}
+		return newObjects;
+	}
+
+	/**
+	 * All derived EObjects (the other roots of the resource, and their content), in eAllContents() order.
+	 */
+	static List<EObject> getDerivedObjects(StorageAwareResource resource) {
+		List<EObject> derivedObjects = Lists.newArrayList();
+		List<EObject> roots = resource.getContents();
+		for (int i = 1; i < roots.size(); i++) {
+			EObject root = roots.get(i);
+			derivedObjects.add(root);
+			Iterator<EObject> it = root.eAllContents();
+			while (it.hasNext()) {
+				derivedObjects.add(it.next());
+			}
+		}
+		return derivedObjects;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.resource;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.eson.building.ModelBuilder;
+import org.eclipse.emf.eson.building.ModelBuilderException;
+import org.eclipse.emf.eson.eFactory.NewObject;
+import org.eclipse.xtext.resource.persistence.ResourceStorageWritable;
+import org.eclipse.xtext.resource.persistence.StorageAwareResource;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+
+/**
+ * Writes the ModelBuilder's NewObject to EObject mapping after the usual entries,
+ * as pairs of indexes into the NewObject of the Factory and the derived EObjects,
+ * both in eAllContents() order, see EFactoryResourceStorageLoadable.
+ */
+// intentionally package local, only used by EFactoryResourceStorageFacade
+class EFactoryResourceStorageWritable extends ResourceStorageWritable {
+
+	static final String MAPPING_ENTRY = "eson-mapping";
+
+	EFactoryResourceStorageWritable(OutputStream out, boolean storeNodeModel) {
+		super(out, storeNodeModel);
+	}
+
+	@Override
+	protected void writeEntries(StorageAwareResource resource, ZipOutputStream zipOut) throws IOException {
+		super.writeEntries(resource, zipOut);
+		if (resource instanceof EFactoryResource) {
+			zipOut.putNextEntry(new ZipEntry(MAPPING_ENTRY));
+			try {
+				// not closed, as that would close the zipOut
+				DataOutputStream out = new DataOutputStream(zipOut);
+				writeMapping((EFactoryResource) resource, out);
+				out.flush();
+			} finally {
+				zipOut.closeEntry();
+			}
+		}
+	}
+
+	private void writeMapping(EFactoryResource resource, DataOutputStream out) throws IOException {
+		List<EObject> derivedObjects = EFactoryResourceStorageLoadable.getDerivedObjects(resource);
+		Map<EObject, Integer> derivedIndexes = Maps.newIdentityHashMap();
+		for (int i = 0; i < derivedObjects.size(); i++) {
+			derivedIndexes.put(derivedObjects.get(i), i);
+		}
+		List<NewObject> newObjects = EFactoryResourceStorageLoadable.getNewObjects(resource);
+		ModelBuilder builder = resource.getBuilder();
+		int[] pairs = new int[newObjects.size() * 2];
+		int size = 0;
+		for (int i = 0; i < newObjects.size(); i++) {
+			Integer derivedIndex = null;
+			try {
+				Optional<EObject> built = builder.getBuilt(newObjects.get(i));
+				if (built.isPresent())
+					derivedIndex = derivedIndexes.get(built.get());
+			} catch (ModelBuilderException e) {
+				// not built, so not mapped
+			}
+			if (derivedIndex != null) {
+				pairs[size++] = i;
+				pairs[size++] = derivedIndex;
+			}
+		}
+		out.writeInt(size / 2);
+		for (int i = 0; i < size; i++) {
+			out.writeInt(pairs[i]);
+		}
+	}
+}
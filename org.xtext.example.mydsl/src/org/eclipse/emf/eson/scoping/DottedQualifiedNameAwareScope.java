@@ -12,46 +12,88 @@
  */
 package org.eclipse.emf.eson.scoping;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.xtext.naming.QualifiedName;
 import org.eclipse.xtext.resource.IEObjectDescription;
 import org.eclipse.xtext.scoping.IScope;
 import org.eclipse.xtext.scoping.impl.AbstractScope;
+import org.eclipse.xtext.util.IResourceScopeCache;
+import org.eclipse.xtext.util.Tuples;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Provider;
 
 /**
  * IScope wrapper which "uses different combinations of QNs' segments to find a single element or elements".
  *
+ * A name which the parent scope does not know as is, is looked up with '.' between all its segments,
+ * in an index of all elements of the parent scope by their name with '.' between all segments; so
+ * an element is found under any segmentation of its name, with a single lookup, instead of trying
+ * (and failing, e.g. while typing) one parent scope lookup per possible merge of segments.
+ *
+ * The scope itself is created for every request, but the index can be kept in the IResourceScopeCache,
+ * for all scopes of the same EReference in the same Resource, see EFactoryScopeProviderNG.scope_EClass().
+ * The parent scope may differ between the contexts of a Resource, so such a shared index is built from
+ * another scope, which is the same for all of them.
+ *
  * @see SimplestWeiredNameTest
  *
  * @author Anton Kosyakov
  */
 public class DottedQualifiedNameAwareScope extends AbstractScope {
 
+	private final @Nullable IResourceScopeCache cache;
+	private final @Nullable Resource resource;
+	private final @Nullable Object cacheKey;
+	private final @Nullable Provider<IScope> indexedScope;
+	// built (or taken from the cache) on the first lookup which needs it
+	private DottedNameIndex elementsByDottedName;
+
 	public DottedQualifiedNameAwareScope(IScope parent, boolean ignoreCase) {
 		super(parent, ignoreCase);
+		this.cache = null;
+		this.resource = null;
+		this.cacheKey = null;
+		this.indexedScope = null;
 	}
 
+	/**
+	 * @param parent the scope of the reference in its context
+	 * @param indexedScope the scope of the reference which the index (shared by all contexts in the resource) is built from;
+	 * 		it must be the same for all contexts in the resource, e.g. the scope of the root with the imports of the resource
+	 */
+	public DottedQualifiedNameAwareScope(IScope parent, boolean ignoreCase, IResourceScopeCache cache, Resource resource, EReference reference, Provider<IScope> indexedScope) {
+		super(parent, ignoreCase);
+		this.cache = cache;
+		this.resource = resource;
+		this.cacheKey = Tuples.create(DottedQualifiedNameAwareScope.class, reference, ignoreCase);
+		this.indexedScope = indexedScope;
+	}
+
+	/**
+	 * If there are several elements of the name (with different segments), this prefers the one with the most segments,
+	 * i.e. the one which splits the name most like the given name does.  E.g. XcoreTest requires this, because when
+	 * Xcore indexes packages it does not care about segments.
+	 */
 	@Override
 	public IEObjectDescription getSingleElement(QualifiedName name) {
 		IEObjectDescription singleElement = super.getSingleElement(name);
 		if (singleElement != null) {
 			return singleElement;
 		}
-		if (name.getSegmentCount() > 2) {
-			// Required for XcoreTest, because when Xcore indexes packages it does not care about segments
-			String mergedSegments = name.skipLast(1).toString(".");
-			QualifiedName mergedName = QualifiedName.create(mergedSegments, name.getLastSegment());
-			singleElement = super.getSingleElement(mergedName);
-			if (singleElement != null) {
-				return singleElement;
-			}
-		}
-		QualifiedName mergedName = mergeTwoLastSegments(name);
-		if (mergedName == null) {
-			return null;
+		IEObjectDescription best = null;
+		for (IEObjectDescription element : getElementsByDottedName(name)) {
+			if (best == null || element.getName().getSegmentCount() > best.getName().getSegmentCount())
+				best = element;
 		}
-		return getSingleElement(mergedName);
+		return best;
 	}
 
 	@Override
@@ -60,19 +102,31 @@ public class DottedQualifiedNameAwareScope extends AbstractScope {
 		if (elements.iterator().hasNext()) {
 			return elements;
 		}
-		QualifiedName mergedName = mergeTwoLastSegments(name);
-		if (mergedName == null) {
-			return elements;
-		}
-		return getElements(mergedName);
+		return getElementsByDottedName(name);
 	}
 
-	protected QualifiedName mergeTwoLastSegments(QualifiedName name) {
-		if (name.getSegmentCount() <= 1) {
-			return null;
+	protected List<IEObjectDescription> getElementsByDottedName(QualifiedName name) {
+		if (elementsByDottedName == null) {
+			final IResourceScopeCache _cache = cache;
+			final Resource _resource = resource;
+			final Provider<IScope> _indexedScope = indexedScope;
+			if (_cache != null && _resource != null && _indexedScope != null) {
+				elementsByDottedName = _cache.get(cacheKey, _resource, new Provider<DottedNameIndex>() {
+					@Override
+					public DottedNameIndex get() {
+						return new DottedNameIndex(_indexedScope.get().getAllElements(), isIgnoreCase());
+					}
+				});
+			} else {
+				elementsByDottedName = new DottedNameIndex(getParent().getAllElements(), isIgnoreCase());
+			}
 		}
-		String mergedSegments = name.skipFirst(name.getSegmentCount() - 2).toString(".");
-		return name.skipLast(2).append(mergedSegments);
+		return elementsByDottedName.get(toDottedName(name, isIgnoreCase()));
+	}
+
+	private static String toDottedName(QualifiedName name, boolean ignoreCase) {
+		String dottedName = name.toString(".");
+		return ignoreCase ? dottedName.toLowerCase() : dottedName;
 	}
 
 	@Override
@@ -80,4 +134,47 @@ public class DottedQualifiedNameAwareScope extends AbstractScope {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * The elements of a scope, sorted by their dotted name; a lookup is a binary search for the first element
+	 * of the name, and the elements of the same name (with different segments) follow it.  Immutable.
+	 */
+	private static final class DottedNameIndex {
+		private final String[] dottedNames;
+		private final IEObjectDescription[] elements;
+
+		DottedNameIndex(Iterable<IEObjectDescription> allElements, boolean ignoreCase) {
+			final List<IEObjectDescription> sorted = Lists.newArrayList(allElements);
+			final String[] names = new String[sorted.size()];
+			Integer[] order = new Integer[sorted.size()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = toDottedName(sorted.get(i).getName(), ignoreCase);
+				order[i] = i;
+			}
+			// stable, so that elements of the same name keep the order of the parent scope
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer left, Integer right) {
+					return names[left].compareTo(names[right]);
+				}
+			});
+			dottedNames = new String[names.length];
+			elements = new IEObjectDescription[names.length];
+			for (int i = 0; i < order.length; i++) {
+				dottedNames[i] = names[order[i]];
+				elements[i] = sorted.get(order[i]);
+			}
+		}
+
+		List<IEObjectDescription> get(String dottedName) {
+			int from = Arrays.binarySearch(dottedNames, dottedName);
+			if (from < 0)
+				return Collections.emptyList();
+			while (from > 0 && dottedNames[from - 1].equals(dottedName))
+				from--;
+			int to = from + 1;
+			while (to < dottedNames.length && dottedNames[to].equals(dottedName))
+				to++;
+			return Collections.unmodifiableList(Arrays.asList(elements).subList(from, to));
+		}
+	}
 }
@@ -14,13 +14,18 @@ package org.eclipse.emf.eson.scoping;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
+import org.eclipse.emf.ecore.ENamedElement;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xtext.naming.QualifiedName;
 import org.eclipse.xtext.util.SimpleAttributeResolver;
 
 import com.google.common.base.Function;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
 
 /**
  * Utility which split QNs that have a dot in one their segments into a
@@ -37,7 +42,11 @@ public class DottedQualifiedNameFixer {
 	public static final Function<EObject, QualifiedName> FUNCTION = new Function<EObject, QualifiedName>() {
 		@Override
 		public QualifiedName apply(EObject input) {
+			if (input instanceof ENamedElement)
+				return getQualifiedName((ENamedElement) input);
 			QualifiedName qn = originalFunction.apply(input);
+			if (qn == null)
+				return null;
 			QualifiedName splitQN = split(qn);
 			return splitQN;
 		}
@@ -45,9 +54,59 @@ public class DottedQualifiedNameFixer {
 
 	private static Splitter dotSplitter = Splitter.on('.');
 
+	// equal names of different elements (e.g. the same feature in several EClass) share one QualifiedName
+	private static final Interner<QualifiedName> qualifiedNames = Interners.newWeakInterner();
+
+	// weak (identity) keys, so that metamodels can still be unloaded; not a LoadingCache, as the name of an element can change
+	private static final ConcurrentMap<ENamedElement, NamedQualifiedName> cache = new MapMaker().weakKeys().makeMap();
+
+	private static class NamedQualifiedName {
+		final String name;
+		final QualifiedName qualifiedName;
+
+		NamedQualifiedName(String name, QualifiedName qualifiedName) {
+			this.name = name;
+			this.qualifiedName = qualifiedName;
+		}
+	}
+
+	/**
+	 * The split QualifiedName of the element's name, same as FUNCTION.
+	 *
+	 * This is cached per element; as long as its name does not change, no objects at all are allocated.
+	 *
+	 * @return null if the element has no name
+	 */
+	public static QualifiedName getQualifiedName(ENamedElement element) {
+		String name = element.getName();
+		if (name == null)
+			return null;
+		NamedQualifiedName cached = cache.get(element);
+		if (cached != null && cached.name.equals(name))
+			return cached.qualifiedName;
+		QualifiedName qualifiedName = qualifiedNames.intern(toQualifiedName(name));
+		cache.put(element, new NamedQualifiedName(name, qualifiedName));
+		return qualifiedName;
+	}
+
+	private static QualifiedName toQualifiedName(String name) {
+		if (name.indexOf('.') < 0)
+			return QualifiedName.create(name);
+		return QualifiedName.create(dotSplitter.splitToList(name));
+	}
+
 	public static QualifiedName split(QualifiedName qn) {
-		List<String> newSegments = new ArrayList<String>(qn.getSegments().size() + 1);
 		List<String> segments = qn.getSegments();
+		boolean hasDot = false;
+		for (String segment : segments) {
+			if (segment.indexOf('.') >= 0) {
+				hasDot = true;
+				break;
+			}
+		}
+		if (!hasDot)
+			return qn;
+		List<String> newSegments = new ArrayList<String>(segments.size() + 1);
 		for (String segment : segments) {
 			if (segment.contains(".")) {
 				Iterable<String> split = dotSplitter.split(segment);
@@ -58,10 +117,7 @@ public class DottedQualifiedNameFixer {
 				newSegments.add(segment);
 			}
 		}
-		if (newSegments.size() == segments.size())
-			return qn;
-		else
-			return QualifiedName.create(newSegments);
+		return QualifiedName.create(newSegments);
 	}
 
 }
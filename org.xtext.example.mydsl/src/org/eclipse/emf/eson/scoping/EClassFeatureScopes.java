@@ -0,0 +1,83 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.scoping;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.eson.util.EcoreUtil3;
+import org.eclipse.xtext.scoping.IScope;
+import org.eclipse.xtext.scoping.Scopes;
+import org.eclipse.xtext.scoping.impl.MapBasedScope;
+
+/**
+ * The feature name scopes of one EClass, shared by all resources.
+ *
+ * These are MapBasedScope, so linking a Feature is a hash lookup, and the names only go through
+ * DottedQualifiedNameFixer once per EClass.  Like EClassHierarchy, they are kept per EClass (weak
+ * keys), and built again when its getEAllStructuralFeatures() is a new list, which EMF does
+ * whenever the features of the EClass or of one of its super types change.
+ */
+// intentionally package local, only used by EFactoryScopeProviderNG
+final class EClassFeatureScopes {
+
+	private static final Map<EClass, EClassFeatureScopes> cache = new WeakHashMap<EClass, EClassFeatureScopes>();
+
+	// not a strong reference, as the list (through its owner) references the EClass key
+	private final WeakReference<EList<EStructuralFeature>> eAllStructuralFeatures;
+	private final IScope assignableFeatures;
+	private final IScope allFeatures;
+
+	private EClassFeatureScopes(EList<EStructuralFeature> eAllStructuralFeatures, EClass eClass) {
+		this.eAllStructuralFeatures = new WeakReference<EList<EStructuralFeature>>(eAllStructuralFeatures);
+		this.assignableFeatures = createScope(EcoreUtil3.getAssignableFeatures(eClass));
+		this.allFeatures = createScope(eAllStructuralFeatures);
+	}
+
+	private static IScope createScope(Iterable<? extends EStructuralFeature> features) {
+		return MapBasedScope.createScope(IScope.NULLSCOPE, Scopes.scopedElementsFor(features, DottedQualifiedNameFixer.FUNCTION));
+	}
+
+	private static EClassFeatureScopes get(EClass eClass) {
+		EList<EStructuralFeature> features = eClass.getEAllStructuralFeatures();
+		if (eClass.eIsProxy())
+			return new EClassFeatureScopes(features, eClass);
+		synchronized (cache) {
+			EClassFeatureScopes scopes = cache.get(eClass);
+			if (scopes == null || scopes.eAllStructuralFeatures.get() != features) {
+				scopes = new EClassFeatureScopes(features, eClass);
+				cache.put(eClass, scopes);
+			}
+			return scopes;
+		}
+	}
+
+	/**
+	 * Scope of the features which a NewObject of the EClass can set.
+	 * @see EcoreUtil3#getAssignableFeatures(EClass)
+	 */
+	static IScope getAssignableFeatures(EClass eClass) {
+		return get(eClass).assignableFeatures;
+	}
+
+	/**
+	 * Scope of all features of the EClass, including the ones which cannot be set.
+	 */
+	static IScope getAllFeatures(EClass eClass) {
+		return get(eClass).allFeatures;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.scoping;
+
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.eson.eFactory.Factory;
+import org.eclipse.emf.eson.eFactory.PackageImport;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.xtext.resource.IEObjectDescription;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The EClass scope elements of one Factory, for each target type, see EPackageScopeProvider.
+ *
+ * This is an Adapter on the Factory, so that it goes away with it (e.g. when its resource is re-parsed).
+ * It is valid as long as the 'use' PackageImports of the Factory resolve to the same EPackages as when
+ * it was filled; so a changed PackageImport list, or an EPackage which was replaced in the registry
+ * (and then re-linked), clears it.
+ *
+ * It synchronizes on private locks only, never on the Factory, which other code may lock as well.
+ */
+// intentionally package local, only used by EPackageScopeProvider
+class EClassScopeCache extends AdapterImpl {
+	// only taken to add the Adapter to a Factory which doesn't have one yet
+	private static final Object ADD_LOCK = new Object();
+
+	private final Object lock = new Object();
+	// guarded by lock
+	private List<EPackage> ePackages = ImmutableList.of();
+	// keyed by the target type, null for all EClasses; guarded by lock
+	private final Map<EClass, List<IEObjectDescription>> scopedElements = Maps.newHashMap();
+
+	static EClassScopeCache get(Factory factory) {
+		EClassScopeCache cache = (EClassScopeCache) EcoreUtil.getExistingAdapter(factory, EClassScopeCache.class);
+		if (cache != null)
+			return cache;
+		synchronized (ADD_LOCK) {
+			cache = (EClassScopeCache) EcoreUtil.getExistingAdapter(factory, EClassScopeCache.class);
+			if (cache == null) {
+				cache = new EClassScopeCache();
+				factory.eAdapters().add(cache);
+			}
+			return cache;
+		}
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == EClassScopeCache.class;
+	}
+
+	/**
+	 * @param function computes the scope elements from the (resolved) EPackages of the Factory, if they are not cached
+	 */
+	List<IEObjectDescription> getScopedElements(Factory factory, @Nullable EClass type, Function<List<EPackage>, List<IEObjectDescription>> function) {
+		synchronized (lock) {
+			if (!isSameEPackages(factory.getEPackages())) {
+				List<EPackage> currentEPackages = Lists.newArrayListWithCapacity(factory.getEPackages().size());
+				for (PackageImport packageImport : factory.getEPackages()) {
+					EPackage ePackage = packageImport.getEPackage();
+					if (ePackage != null)
+						currentEPackages.add(ePackage);
+				}
+				ePackages = ImmutableList.copyOf(currentEPackages);
+				scopedElements.clear();
+			}
+			// unresolved proxies are new instances every time, so not worth keeping
+			if (type != null && type.eIsProxy())
+				return function.apply(ePackages);
+			List<IEObjectDescription> elements = scopedElements.get(type);
+			if (elements == null) {
+				elements = function.apply(ePackages);
+				scopedElements.put(type, elements);
+			}
+			return elements;
+		}
+	}
+
+	// without allocating anything, as this is checked for every scope; the same EPackages as EFactoryUtil.getEPackages() returns
+	private boolean isSameEPackages(List<PackageImport> packageImports) {
+		int i = 0;
+		for (PackageImport packageImport : packageImports) {
+			EPackage ePackage = packageImport.getEPackage();
+			if (ePackage == null)
+				continue;
+			if (i >= ePackages.size() || ePackages.get(i) != ePackage)
+				return false;
+			i++;
+		}
+		return i == ePackages.size();
+	}
+}
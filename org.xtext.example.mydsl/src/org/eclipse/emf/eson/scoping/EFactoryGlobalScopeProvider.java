@@ -0,0 +1,39 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.scoping;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.xtext.resource.IContainer;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.scoping.IScope;
+import org.eclipse.xtext.scoping.impl.DefaultGlobalScopeProvider;
+import org.eclipse.xtext.scoping.impl.SelectableBasedScope;
+
+import com.google.common.base.Predicate;
+import com.google.inject.Inject;
+
+/**
+ * Global scope provider whose container scopes enumerate the exported objects of a type
+ * from an index partitioned by EClass, instead of checking every exported object.
+ *
+ * @see ExportedObjectsByEClass
+ */
+public class EFactoryGlobalScopeProvider extends DefaultGlobalScopeProvider {
+
+	private @Inject ExportedObjectsByEClass exportedObjectsByEClass;
+
+	@Override
+	protected IScope createContainerScope(IScope parent, IContainer container, Predicate<IEObjectDescription> filter, EClass type, boolean ignoreCase) {
+		return SelectableBasedScope.createScope(parent, exportedObjectsByEClass.getSelectable(container), filter, type, ignoreCase);
+	}
+}
@@ -13,14 +13,21 @@
 package org.eclipse.emf.eson.scoping;
 
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.eson.eFactory.EFactoryPackage;
+import org.eclipse.emf.eson.resource.EFactoryResource;
 import org.eclipse.xtext.naming.IQualifiedNameConverter;
 import org.eclipse.xtext.naming.IQualifiedNameProvider;
 import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.util.IResourceScopeCache;
 import org.eclipse.xtext.util.SimpleAttributeResolver;
+import org.eclipse.xtext.util.Tuples;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 /**
  * IQualifiedNameProvider for ESON/EFactory.
@@ -34,20 +41,38 @@ import com.google.inject.Inject;
 public class EFactoryQualifiedNameProvider extends IQualifiedNameProvider.AbstractImpl {
 	// NOTE That we do not extend DefaultDeclarativeQualifiedNameProvider, as we don't need its PolymorphicDispatcher
 
-	// TODO evaluate (measure) if using an IResourceScopeCache (OnChangeEvictingCache) here, like DefaultDeclarativeQualifiedNameProvider seems to, makes any noticeable perf. diff?
-
 	// TODO make this more pluggable.. the core logic below (skip our own) should be "core", the actual naming resolution itself should be Guice pluggable?
 	public final static String NAME_ATTRIBUTE_NAME = "name"; // as is hard-coded in NAME_RESOLVER
 	protected Function<EObject, String> resolver = SimpleAttributeResolver.NAME_RESOLVER;
 
+	// the segments of all names, shared by all resources (and so by all IEObjectDescription in the index)
+	private static final Interner<String> segments = Interners.newWeakInterner();
+
 	protected @Inject IQualifiedNameConverter converter;
-	
+
+	// like DefaultDeclarativeQualifiedNameProvider; EFactoryDerivedStateComputer clears it when it (re)builds the derived EObjects
+	protected @Inject IResourceScopeCache cache;
+	private static final String FQN_CACHE_KEY = EFactoryQualifiedNameProvider.class.getName() + ".fqn";
+
+	/**
+	 * The names are cached per resource, and a name is computed from the cached name of its container.
+	 * When the index exports a resource (top-down), every name is thus computed only once, from its parent's.
+	 */
 	@Override
-	public final QualifiedName getFullyQualifiedName(EObject obj) {
+	public final QualifiedName getFullyQualifiedName(final EObject obj) {
 		if (obj.eClass().getEPackage().equals(EFactoryPackage.eINSTANCE)) {
 			return null; // skip!
 		};
-		return _getFullyQualifiedName(obj);
+		Resource resource = obj.eResource();
+		// not for other resources, e.g. of metamodels, to which the cache would add an adapter
+		if (!(resource instanceof EFactoryResource))
+			return _getFullyQualifiedName(obj);
+		return cache.get(Tuples.pair(obj, FQN_CACHE_KEY), resource, new Provider<QualifiedName>() {
+			@Override
+			public QualifiedName get() {
+				return _getFullyQualifiedName(obj);
+			}
+		});
 	}
 
 	protected final QualifiedName _getFullyQualifiedName(EObject obj) {
@@ -56,7 +81,7 @@ public class EFactoryQualifiedNameProvider extends IQualifiedNameProvider.Abstra
 		if(name == null || name.length() == 0)
 			return null;
 	
-		QualifiedName qualifiedNameFromConverter = converter.toQualifiedName(name);
+		QualifiedName qualifiedNameFromConverter = intern(converter.toQualifiedName(name));
 		while (temp.eContainer() != null) {
 			temp = temp.eContainer();
 			QualifiedName parentsQualifiedName = getFullyQualifiedName(temp);
@@ -67,6 +92,14 @@ public class EFactoryQualifiedNameProvider extends IQualifiedNameProvider.Abstra
 		return qualifiedNameFromConverter;
 	}
 	
+	private static QualifiedName intern(QualifiedName name) {
+		String[] internedSegments = new String[name.getSegmentCount()];
+		for (int i = 0; i < internedSegments.length; i++) {
+			internedSegments[i] = segments.intern(name.getSegment(i));
+		}
+		return QualifiedName.create(internedSegments);
+	}
+
 	protected Function<EObject, String> getResolver() {
 		return resolver;
 	}
@@ -13,6 +13,7 @@
 package org.eclipse.emf.eson.scoping;
 
 import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EClass;
@@ -29,6 +30,10 @@ import org.eclipse.xtext.resource.IEObjectDescription;
 import org.eclipse.xtext.scoping.IScope;
 
 import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
@@ -48,16 +53,25 @@ public class EFactoryScopeProvider extends EFactoryScopeProviderNG {
 		// Following inspired & shamelessly ;) stolen from org.eclipse.xtext.xtext.XtextScopeProvider.createEPackageScope(Grammar):
 		// but fixed up as discussed in https://bugs.eclipse.org/bugs/show_bug.cgi?id=489748
 		Iterable<String> nsURIs = ePackageRegistry.getNsURIs(packageImport);
-		return new SimpleEPackageScope(parent, Iterables.transform(nsURIs, new Function<String, IEObjectDescription>() {
-			@Override
-			public IEObjectDescription apply(String from) {
-				InternalEObject proxyPackage = (InternalEObject) EcoreFactory.eINSTANCE.createEPackage();
-				proxyPackage.eSetProxyURI(URI.createURI(from).appendFragment("/"));
-				return EObjectDescription.create(qualifiedNameConverter.toQualifiedName(from), proxyPackage, Collections.singletonMap("nsURI", "true"));
-			}
-		}));
+		return new SimpleEPackageScope(parent, nsURIDescriptions.getUnchecked(nsURIs));
 	}
 
+	// keyed by the (identity of the) snapshot which EPackageRegistry returns for as long as the registry does not change
+	private final LoadingCache<Iterable<String>, List<IEObjectDescription>> nsURIDescriptions = CacheBuilder.newBuilder().weakKeys()
+			.build(new CacheLoader<Iterable<String>, List<IEObjectDescription>>() {
+				@Override
+				public List<IEObjectDescription> load(Iterable<String> nsURIs) {
+					return ImmutableList.copyOf(Iterables.transform(nsURIs, new Function<String, IEObjectDescription>() {
+						@Override
+						public IEObjectDescription apply(String from) {
+							InternalEObject proxyPackage = (InternalEObject) EcoreFactory.eINSTANCE.createEPackage();
+							proxyPackage.eSetProxyURI(URI.createURI(from).appendFragment("/"));
+							return EObjectDescription.create(qualifiedNameConverter.toQualifiedName(from), proxyPackage, Collections.singletonMap("nsURI", "true"));
+						}
+					}));
+				}
+			});
+
 	@Override
 	// This is implicitly also used for scope_CustomNameMapping_eClass
 	public IScope scope_EClass(EObject context, EReference reference) {
@@ -18,10 +18,12 @@ import org.eclipse.emf.ecore.EEnum;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.eson.building.NewObjectExtensions;
 import org.eclipse.emf.eson.eFactory.Attribute;
 import org.eclipse.emf.eson.eFactory.CustomNameMapping;
 import org.eclipse.emf.eson.eFactory.EnumAttribute;
+import org.eclipse.emf.eson.eFactory.Factory;
 import org.eclipse.emf.eson.eFactory.Feature;
 import org.eclipse.emf.eson.eFactory.MultiValue;
 import org.eclipse.emf.eson.eFactory.NewObject;
@@ -33,10 +35,12 @@ import org.eclipse.xtext.scoping.Scopes;
 import org.eclipse.xtext.scoping.impl.AbstractDeclarativeScopeProvider;
 import org.eclipse.xtext.scoping.impl.FilteringScope;
 import org.eclipse.xtext.scoping.impl.SimpleScope;
+import org.eclipse.xtext.util.IResourceScopeCache;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 /**
  * Scope Provider which finds everything only from within the workspace using the Xtext index, as usual.
@@ -47,6 +51,7 @@ public class EFactoryScopeProviderNG extends AbstractDeclarativeScopeProvider {
 
 	protected @Inject ICaseInsensitivityHelper caseInsensitivityHelper;
 	protected @Inject NewObjectExtensions newObjectExtensions;
+	protected @Inject IResourceScopeCache cache;
 
 	public IScope scope_EnumAttribute_value(EnumAttribute attribute, EReference reference) {
 		Feature feature = getFeature(attribute);
@@ -63,10 +68,7 @@ public class EFactoryScopeProviderNG extends AbstractDeclarativeScopeProvider {
 	public IScope scope_Feature_eFeature(NewObject newObject, EReference reference) {
 		Optional<EClass> optionalEClass = newObjectExtensions.getDeclaredOrInferredEClass(newObject);
 		if (optionalEClass.isPresent()) {
-			EClass eClass = optionalEClass.get();
-			Iterable<? extends EObject> assignableFeature = EcoreUtil3.getAssignableFeatures(eClass );
-			Iterable<IEObjectDescription> descs = Scopes.scopedElementsFor(assignableFeature, DottedQualifiedNameFixer.FUNCTION);
-			return new SimpleScope(descs);
+			return EClassFeatureScopes.getAssignableFeatures(optionalEClass.get());
 		} else {
 			return IScope.NULLSCOPE;
 		}
@@ -80,26 +82,37 @@ public class EFactoryScopeProviderNG extends AbstractDeclarativeScopeProvider {
 	public IScope scope_Feature_reference(NewObject newObject, EReference reference) {
 		Optional<EClass> optionalEClass = newObjectExtensions.getDeclaredOrInferredEClass(newObject);
 		if (optionalEClass.isPresent()) {
-			return new SimpleScope(Scopes.scopedElementsFor(optionalEClass.get().getEAllStructuralFeatures(), DottedQualifiedNameFixer.FUNCTION));
+			return EClassFeatureScopes.getAllFeatures(optionalEClass.get());
 		} else {
 			return IScope.NULLSCOPE;
 		}
 	}
 
-	public IScope scope_EClass(EObject context, EReference reference) {
+	// the dotted name index is shared by all contexts in the resource, so it is built from the scope of the Factory (i.e. with its imports), not from that of the context
+	public IScope scope_EClass(EObject context, final EReference reference) {
 		IScope scope = delegateGetScope(context, reference);
-		return new DottedQualifiedNameAwareScope(scope, isIgnoreCase(reference));
+		Resource resource = context.eResource();
+		if (resource == null || resource.getContents().isEmpty() || !(resource.getContents().get(0) instanceof Factory))
+			return new DottedQualifiedNameAwareScope(scope, isIgnoreCase(reference));
+		final Factory factory = (Factory) resource.getContents().get(0);
+		return new DottedQualifiedNameAwareScope(scope, isIgnoreCase(reference), cache, resource, reference, new Provider<IScope>() {
+			@Override
+			public IScope get() {
+				return delegateGetScope(factory, reference);
+			}
+		});
 	}
 
 	public IScope scope_Reference_value(Feature feature, EReference eReference) {
 		EStructuralFeature sourceFeature = feature.getEFeature();
 		if (EcoreUtil3.isEReference(sourceFeature)) {
 			EReference realEReference = (EReference) sourceFeature;
+			// the global scope of the realEReference only enumerates its type, see EFactoryGlobalScopeProvider; this filter is for the rest
 			IScope parentScope = delegateGetScope(feature, realEReference);
 			final EClass referenceType = realEReference.getEReferenceType();
 			return new FilteringScope(parentScope, new Predicate<IEObjectDescription>() {
 				public boolean apply(IEObjectDescription desc) {
-					return referenceType.isSuperTypeOf(desc.getEClass());
+					return EcoreUtil3.isSubClass(referenceType, desc.getEClass());
 				}
 			});
 		}
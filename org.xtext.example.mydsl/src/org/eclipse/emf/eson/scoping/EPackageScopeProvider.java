@@ -13,12 +13,12 @@
 package org.eclipse.emf.eson.scoping;
 
 import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.eson.eFactory.Factory;
-import org.eclipse.emf.eson.util.EFactoryUtil;
 import org.eclipse.emf.eson.util.EcoreUtil3;
 import org.eclipse.xtext.resource.IEObjectDescription;
 import org.eclipse.xtext.scoping.IScope;
@@ -27,20 +27,27 @@ import org.eclipse.xtext.scoping.impl.SimpleScope;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.inject.Inject;
 
 public class EPackageScopeProvider implements IEPackageScopeProvider {
 
-	@Inject
-	private EFactoryUtil eFactoryUtil;
-
-	public IScope createEClassScope(Resource resource, EClass type, IScope parent) {
-		Iterable<EPackage> ePackages = resolvePackages(resource);
-		Iterable<EClass> eClasses = getAllEClasses(ePackages);
-		if (type != null)
-			eClasses = filterAssignableEClasses(eClasses, type);
-		Iterable<IEObjectDescription> scopedElements = Scopes.scopedElementsFor(eClasses, DottedQualifiedNameFixer.FUNCTION);
+	/**
+	 * The scope elements are cached per Factory and target type, see EClassScopeCache; only the (cheap) scope itself is new for every call.
+	 */
+	public IScope createEClassScope(Resource resource, final EClass type, IScope parent) {
+		if (resource.getContents().isEmpty() || !(resource.getContents().get(0) instanceof Factory))
+			return new SimpleScope(parent, Collections.<IEObjectDescription>emptyList());
+		Factory factory = (Factory) resource.getContents().get(0);
+		List<IEObjectDescription> scopedElements = EClassScopeCache.get(factory).getScopedElements(factory, type, new Function<List<EPackage>, List<IEObjectDescription>>() {
+			@Override
+			public List<IEObjectDescription> apply(List<EPackage> ePackages) {
+				Iterable<EClass> eClasses = getAllEClasses(ePackages);
+				if (type != null)
+					eClasses = filterAssignableEClasses(eClasses, type);
+				return ImmutableList.copyOf(Scopes.scopedElementsFor(eClasses, DottedQualifiedNameFixer.FUNCTION));
+			}
+		});
 		return new SimpleScope(parent, scopedElements);
 	}
 
@@ -61,14 +68,6 @@ public class EPackageScopeProvider implements IEPackageScopeProvider {
 		});
 	}
 
-	private Iterable<EPackage> resolvePackages(Resource resource) {
-		Factory root = (Factory) resource.getContents().get(0);
-		if (root == null) {
-			return Collections.emptyList();
-		}
-		return eFactoryUtil.getEPackages(root);
-	}
-
 	public Iterable<EClass> getAllEClasses(Iterable<? extends EPackage> ePackages) {
 		return Iterables.concat(Iterables.transform(ePackages,
 				new Function<EPackage, Iterable<EClass>>() {
@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.scoping;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.xtext.EcoreUtil2;
+import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.resource.IContainer;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.resource.IResourceDescription;
+import org.eclipse.xtext.resource.ISelectable;
+import org.eclipse.xtext.resource.impl.DefaultResourceDescription;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.inject.Singleton;
+
+/**
+ * Index of the exported objects of each IResourceDescription, partitioned by their EClass.
+ *
+ * Xtext's getExportedObjectsByType() runs EcoreUtil2.isAssignableFrom() over every exported
+ * object of every resource, for every scope of a typed reference.  With the partitions, it
+ * only checks each distinct EClass of a resource once (and remembers the result per queried
+ * type), and then only enumerates the partitions of that type and its subtypes.
+ *
+ * A partition is kept as long as its IResourceDescription (weak identity keys); the copies
+ * which the builder and the language server keep in their index never change.  Resource
+ * backed DefaultResourceDescription (used without an index) are not partitioned, as their
+ * exported objects follow the changes of their resource.
+ */
+// intentionally package local, only used by EFactoryGlobalScopeProvider
+@Singleton
+class ExportedObjectsByEClass {
+
+	private final LoadingCache<IResourceDescription, Partitions> partitions = CacheBuilder.newBuilder().weakKeys()
+			.build(new CacheLoader<IResourceDescription, Partitions>() {
+				@Override
+				public Partitions load(IResourceDescription description) {
+					return new Partitions(description.getExportedObjects());
+				}
+			});
+
+	/**
+	 * ISelectable view of the container, whose getExportedObjectsByType() uses the partitions.
+	 */
+	ISelectable getSelectable(IContainer container) {
+		return new PartitionedContainer(container);
+	}
+
+	Iterable<IEObjectDescription> getExportedObjectsByType(IResourceDescription description, EClass type) {
+		if (description instanceof DefaultResourceDescription)
+			return description.getExportedObjectsByType(type);
+		return partitions.getUnchecked(description).getExportedObjectsByType(type);
+	}
+
+	private static class Partitions {
+		private final List<IEObjectDescription> all;
+		private final ImmutableListMultimap<EClass, IEObjectDescription> byEClass;
+		// the keys of byEClass which are assignable to the queried type
+		private final Map<EClass, List<EClass>> assignableEClasses = new ConcurrentHashMap<EClass, List<EClass>>();
+
+		Partitions(Iterable<IEObjectDescription> exportedObjects) {
+			all = ImmutableList.copyOf(exportedObjects);
+			ImmutableListMultimap.Builder<EClass, IEObjectDescription> builder = ImmutableListMultimap.builder();
+			for (IEObjectDescription description : all) {
+				builder.put(description.getEClass(), description);
+			}
+			byEClass = builder.build();
+		}
+
+		Iterable<IEObjectDescription> getExportedObjectsByType(EClass type) {
+			if (type == EcorePackage.Literals.EOBJECT)
+				return all;
+			List<EClass> eClasses = assignableEClasses.get(type);
+			if (eClasses == null) {
+				eClasses = Lists.newArrayList();
+				for (EClass eClass : byEClass.keySet()) {
+					if (EcoreUtil2.isAssignableFrom(type, eClass))
+						eClasses.add(eClass);
+				}
+				eClasses = ImmutableList.copyOf(eClasses);
+				assignableEClasses.put(type, eClasses);
+			}
+			if (eClasses.size() == byEClass.keySet().size())
+				return all; // keeps the original order
+			if (eClasses.size() == 1)
+				return byEClass.get(eClasses.get(0));
+			List<Iterable<IEObjectDescription>> matches = Lists.newArrayListWithCapacity(eClasses.size());
+			for (EClass eClass : eClasses) {
+				matches.add(byEClass.get(eClass));
+			}
+			return Iterables.concat(matches);
+		}
+	}
+
+	private class PartitionedContainer implements ISelectable {
+		private final IContainer container;
+
+		PartitionedContainer(IContainer container) {
+			this.container = container;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return container.isEmpty();
+		}
+
+		@Override
+		public Iterable<IEObjectDescription> getExportedObjects() {
+			return container.getExportedObjects();
+		}
+
+		@Override
+		public Iterable<IEObjectDescription> getExportedObjects(EClass type, QualifiedName name, boolean ignoreCase) {
+			// already an index lookup by name
+			return container.getExportedObjects(type, name, ignoreCase);
+		}
+
+		@Override
+		public Iterable<IEObjectDescription> getExportedObjectsByType(EClass type) {
+			List<Iterable<IEObjectDescription>> result = Lists.newArrayList();
+			for (IResourceDescription description : container.getResourceDescriptions()) {
+				result.add(ExportedObjectsByEClass.this.getExportedObjectsByType(description, type));
+			}
+			return Iterables.concat(result);
+		}
+
+		@Override
+		public Iterable<IEObjectDescription> getExportedObjectsByObject(EObject object) {
+			return container.getExportedObjectsByObject(object);
+		}
+	}
+}
@@ -13,16 +13,27 @@
 package org.eclipse.emf.eson.scoping;
 
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.eson.eFactory.Factory;
 import org.eclipse.emf.eson.eFactory.NamespaceImport;
 import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.resource.IEObjectDescription;
+import org.eclipse.xtext.resource.ISelectable;
+import org.eclipse.xtext.scoping.IScope;
 import org.eclipse.xtext.scoping.impl.ImportNormalizer;
+import org.eclipse.xtext.scoping.impl.ImportScope;
 import org.eclipse.xtext.scoping.impl.ImportedNamespaceAwareLocalScopeProvider;
 import org.eclipse.xtext.util.Strings;
 
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
 /**
  * ImportedNamespaceAwareLocalScopeProvider to make Xcore "import package.sub.*" and "import package.sub.MyEClass" work.
  * 
@@ -34,6 +45,26 @@ import org.eclipse.xtext.util.Strings;
  */
 public class ExtendedImportedNamespaceAwareLocalScopeProvider extends ImportedNamespaceAwareLocalScopeProvider {
 
+	/**
+	 * The normalizers of a Factory are kept until its imports change, see ImportNormalizersCache.
+	 */
+	@Override
+	protected List<ImportNormalizer> getImportedNamespaceResolvers(final EObject context, final boolean ignoreCase) {
+		if (!(context instanceof Factory))
+			return super.getImportedNamespaceResolvers(context, ignoreCase);
+		return ImportNormalizersCache.get((Factory) context).getNormalizers((Factory) context, ignoreCase, new Supplier<List<ImportNormalizer>>() {
+			@Override
+			public List<ImportNormalizer> get() {
+				return internalGetImportedNamespaceResolvers(context, ignoreCase);
+			}
+		});
+	}
+
+	@Override
+	protected ImportScope createImportScope(IScope parent, List<ImportNormalizer> namespaceResolvers, ISelectable importFrom, EClass type, boolean ignoreCase) {
+		return new PrefixCheckingImportScope(namespaceResolvers, parent, importFrom, type, ignoreCase);
+	}
+
 	@Override
 	protected List<ImportNormalizer> internalGetImportedNamespaceResolvers(final EObject context, boolean ignoreCase) {
 		List<ImportNormalizer> importedNamespaceResolvers = super.internalGetImportedNamespaceResolvers(context, ignoreCase);
@@ -74,4 +105,48 @@ public class ExtendedImportedNamespaceAwareLocalScopeProvider extends ImportedNa
 			return doCreateImportNormalizer(importedNamespace, false, ignoreCase);
 		}
 	}
+
+	/**
+	 * ImportScope which only tries its normalizers on names that start with the first segment of one of their prefixes.
+	 *
+	 * For all other names, ImportNormalizer.deresolve() could only return null anyway; this matters for
+	 * getAllElements() (e.g. content assist), which deresolves every candidate with every normalizer.
+	 */
+	protected static class PrefixCheckingImportScope extends ImportScope {
+		private final boolean ignoreCase;
+		// null if any normalizer has an empty prefix, as that matches all names
+		private final Set<String> firstSegments;
+
+		public PrefixCheckingImportScope(List<ImportNormalizer> namespaceResolvers, IScope parent, ISelectable importFrom, EClass type, boolean ignoreCase) {
+			super(namespaceResolvers, parent, importFrom, type, ignoreCase);
+			this.ignoreCase = ignoreCase;
+			Set<String> segments = Sets.newHashSet();
+			for (ImportNormalizer normalizer : namespaceResolvers) {
+				QualifiedName prefix = normalizer.getImportedNamespacePrefix();
+				if (prefix.isEmpty()) {
+					segments = null;
+					break;
+				}
+				segments.add(toKey(prefix.getFirstSegment()));
+			}
+			this.firstSegments = segments;
+		}
+
+		@Override
+		protected Iterable<IEObjectDescription> getAliasedElements(Iterable<IEObjectDescription> candidates) {
+			if (firstSegments == null)
+				return super.getAliasedElements(candidates);
+			return super.getAliasedElements(Iterables.filter(candidates, new Predicate<IEObjectDescription>() {
+				@Override
+				public boolean apply(IEObjectDescription candidate) {
+					QualifiedName name = candidate.getName();
+					return !name.isEmpty() && firstSegments.contains(toKey(name.getFirstSegment()));
+				}
+			}));
+		}
+
+		private String toKey(String segment) {
+			return ignoreCase ? segment.toLowerCase() : segment;
+		}
+	}
 }
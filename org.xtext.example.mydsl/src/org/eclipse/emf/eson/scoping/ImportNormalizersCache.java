@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.scoping;
+
+import java.util.List;
+
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.eson.eFactory.Factory;
+import org.eclipse.emf.eson.eFactory.NamespaceImport;
+import org.eclipse.xtext.scoping.impl.ImportNormalizer;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * The ImportNormalizers of one Factory, see ExtendedImportedNamespaceAwareLocalScopeProvider.
+ *
+ * Xtext already caches them in the IResourceScopeCache, but that is cleared on every change of
+ * the resource (including every rebuild of the derived EObjects).  This Adapter on the Factory
+ * is only cleared when its imported namespaces are no longer the same.
+ *
+ * It synchronizes on private locks only, never on the Factory, which other code may lock as well.
+ */
+// intentionally package local, only used by ExtendedImportedNamespaceAwareLocalScopeProvider
+class ImportNormalizersCache extends AdapterImpl {
+	// only taken to add the Adapter to a Factory which doesn't have one yet
+	private static final Object ADD_LOCK = new Object();
+
+	private final Object lock = new Object();
+	// all guarded by lock
+	private List<String> importedNamespaces = ImmutableList.of();
+	private List<ImportNormalizer> normalizers;
+	private List<ImportNormalizer> ignoreCaseNormalizers;
+
+	static ImportNormalizersCache get(Factory factory) {
+		ImportNormalizersCache cache = (ImportNormalizersCache) EcoreUtil.getExistingAdapter(factory, ImportNormalizersCache.class);
+		if (cache != null)
+			return cache;
+		synchronized (ADD_LOCK) {
+			cache = (ImportNormalizersCache) EcoreUtil.getExistingAdapter(factory, ImportNormalizersCache.class);
+			if (cache == null) {
+				cache = new ImportNormalizersCache();
+				factory.eAdapters().add(cache);
+			}
+			return cache;
+		}
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == ImportNormalizersCache.class;
+	}
+
+	List<ImportNormalizer> getNormalizers(Factory factory, boolean ignoreCase, Supplier<List<ImportNormalizer>> supplier) {
+		synchronized (lock) {
+			EList<NamespaceImport> imports = factory.getImports();
+			if (!isSameImports(imports)) {
+				List<String> namespaces = Lists.newArrayListWithCapacity(imports.size());
+				for (NamespaceImport namespaceImport : imports) {
+					namespaces.add(namespaceImport.getImportedNamespace());
+				}
+				importedNamespaces = namespaces;
+				normalizers = null;
+				ignoreCaseNormalizers = null;
+			}
+			if (ignoreCase) {
+				if (ignoreCaseNormalizers == null)
+					ignoreCaseNormalizers = ImmutableList.copyOf(supplier.get());
+				return ignoreCaseNormalizers;
+			} else {
+				if (normalizers == null)
+					normalizers = ImmutableList.copyOf(supplier.get());
+				return normalizers;
+			}
+		}
+	}
+
+	// without allocating anything, as this is checked for every scope
+	private boolean isSameImports(EList<NamespaceImport> imports) {
+		if (imports.size() != importedNamespaces.size())
+			return false;
+		for (int i = 0; i < imports.size(); i++) {
+			String namespace = imports.get(i).getImportedNamespace();
+			String cached = importedNamespaces.get(i);
+			if (namespace == null ? cached != null : !namespace.equals(cached))
+				return false;
+		}
+		return true;
+	}
+}
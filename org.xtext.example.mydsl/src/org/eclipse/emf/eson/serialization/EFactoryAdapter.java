@@ -56,15 +56,25 @@ public class EFactoryAdapter extends EContentAdapter {
 
 	protected @Inject EFactoryServiceProvider serviceProvider;
 	private boolean isReEntrant = false;
+	private boolean isSuspended = false;
 	
 	@Override
 	public boolean isAdapterForType(Object type) {
 		return type == EFactoryAdapter.class;
 	}
 	
+	/**
+	 * While suspended, changes to the derived EObjects are NOT re-synchronized to the EFactory model.
+	 * This is for changes made by the ModelBuilder itself, after the Adapter was already added, see EFactoryResource.materialize().
+	 * NOTE that this ignores ALL notifications, so the derived EObjects must not get new contents while suspended.
+	 */
+	public void setSuspended(boolean suspended) {
+		isSuspended = suspended;
+	}
+
 	@Override
 	public void notifyChanged(final Notification msg) {
-		if (isReEntrant)
+		if (isReEntrant || isSuspended)
 			return;
 		try {
 			isReEntrant = true;
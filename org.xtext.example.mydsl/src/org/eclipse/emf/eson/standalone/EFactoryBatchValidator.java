@@ -0,0 +1,318 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.standalone;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.EcoreResourceFactoryImpl;
+import org.eclipse.emf.eson.EFactoryStandaloneSetup;
+import org.eclipse.emf.eson.resource.EFactoryResource;
+import org.eclipse.emf.eson.util.EcoreUtil3;
+import org.eclipse.emf.eson.util.VersionedEPackageRegistry;
+import org.eclipse.xtext.diagnostics.Severity;
+import org.eclipse.xtext.resource.FileExtensionProvider;
+import org.eclipse.xtext.resource.IResourceDescription;
+import org.eclipse.xtext.resource.XtextResource;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.eclipse.xtext.resource.impl.ResourceDescriptionsData;
+import org.eclipse.xtext.resource.persistence.SerializableResourceDescription;
+import org.eclipse.xtext.util.CancelIndicator;
+import org.eclipse.xtext.validation.CheckMode;
+import org.eclipse.xtext.validation.IResourceValidator;
+import org.eclipse.xtext.validation.Issue;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+/**
+ * Command line validator of all ESON files (and the *.ecore metamodels they use) in some directory trees.
+ * 
+ * The files are first indexed in parallel, each one parsed on its own; then all of them are linked and
+ * validated in parallel against that index, in chunks of neighbouring files (which typically reference
+ * each other) per ResourceSet, so that a referenced file is re-loaded as rarely as possible.
+ * 
+ * Diagnostics are printed as "path:line:column: SEVERITY: message [code]", one per line, in the order of the
+ * files; timing statistics are printed to stderr.  The exit code is 1 if there are any errors, else 0.
+ * 
+ * Usage: EFactoryBatchValidator [-threads n] directory-or-file...
+ */
+public class EFactoryBatchValidator {
+
+	private static final String ECORE_EXTENSION = "ecore";
+	private static final int MAX_CHUNK_SIZE = 100;
+
+	@Inject
+	private Provider<XtextResourceSet> resourceSetProvider;
+
+	@Inject
+	private IResourceValidator resourceValidator;
+
+	@Inject
+	private FileExtensionProvider fileExtensionProvider;
+
+	private PrintStream out = System.out;
+	private PrintStream log = System.err;
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private EPackage.Registry packageRegistry;
+	private ResourceDescriptionsData index;
+
+	public static void main(String[] args) {
+		List<File> roots = Lists.newArrayList();
+		int threads = 0;
+		for (int i = 0; i < args.length; i++) {
+			if ("-threads".equals(args[i]) && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else
+				roots.add(new File(args[i]));
+		}
+		if (roots.isEmpty()) {
+			System.err.println("Usage: " + EFactoryBatchValidator.class.getSimpleName() + " [-threads n] directory-or-file...");
+			System.exit(2);
+		}
+		Injector injector = new EFactoryStandaloneSetup().createInjectorAndDoEMFRegistration();
+		EFactoryBatchValidator validator = injector.getInstance(EFactoryBatchValidator.class);
+		if (threads > 0)
+			validator.setThreads(threads);
+		try {
+			System.exit(validator.validate(roots) > 0 ? 1 : 0);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+	}
+
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads < 1");
+		this.threads = threads;
+	}
+
+	public void setOutput(PrintStream out, PrintStream log) {
+		this.out = out;
+		this.log = log;
+	}
+
+	/**
+	 * @return number of errors
+	 */
+	public int validate(List<File> roots) throws IOException {
+		Stopwatch total = Stopwatch.createStarted();
+		List<URI> metamodels = Lists.newArrayList();
+		List<URI> files = Lists.newArrayList();
+		for (File root : roots) {
+			collect(root.toPath(), metamodels, files);
+		}
+		Collections.sort(files, (a, b) -> a.toString().compareTo(b.toString()));
+
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		packageRegistry = loadMetamodels(metamodels);
+		log.println("Loaded " + metamodels.size() + " metamodels in " + stopwatch);
+
+		stopwatch.reset().start();
+		List<IResourceDescription> descriptions = Lists.newArrayList();
+		for (List<IResourceDescription> chunk : inParallel(files, this::indexChunk)) {
+			descriptions.addAll(chunk);
+		}
+		index = new ResourceDescriptionsData(descriptions);
+		log.println("Indexed " + files.size() + " files in " + stopwatch);
+
+		stopwatch.reset().start();
+		List<List<Issue>> issues = inParallel(files, this::validateChunk);
+		log.println("Linked and validated " + files.size() + " files in " + stopwatch);
+
+		int errors = 0;
+		int warnings = 0;
+		for (List<Issue> chunk : issues) {
+			for (Issue issue : chunk) {
+				if (issue.getSeverity() == Severity.ERROR)
+					errors++;
+				else if (issue.getSeverity() == Severity.WARNING)
+					warnings++;
+				print(issue);
+			}
+		}
+		out.flush();
+		log.println(files.size() + " files, " + errors + " errors, " + warnings + " warnings, with " + threads + " threads in " + total);
+		return errors;
+	}
+
+	protected void collect(Path root, List<URI> metamodels, List<URI> files) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.filter(Files::isRegularFile).forEach(path -> {
+				String fileName = path.getFileName().toString();
+				String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+				URI uri = URI.createFileURI(path.toAbsolutePath().normalize().toString());
+				if (ECORE_EXTENSION.equals(extension))
+					metamodels.add(uri);
+				else if (fileExtensionProvider.isValid(extension))
+					files.add(uri);
+			});
+		}
+	}
+
+	/**
+	 * Loads the metamodels, and resolves and initializes everything in them, as they are
+	 * shared (read-only) by all threads, and EMF's lazy proxy resolution is not thread safe.
+	 */
+	protected EPackage.Registry loadMetamodels(List<URI> metamodels) {
+		EPackage.Registry registry = new VersionedEPackageRegistry(EPackage.Registry.INSTANCE);
+		ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.setPackageRegistry(registry);
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(ECORE_EXTENSION, new EcoreResourceFactoryImpl());
+		for (URI uri : metamodels) {
+			resourceSet.getResource(uri, true);
+		}
+		EcoreUtil.resolveAll(resourceSet);
+		for (Resource resource : resourceSet.getResources()) {
+			for (TreeIterator<EObject> it = resource.getAllContents(); it.hasNext();) {
+				EObject next = it.next();
+				if (next instanceof EPackage && ((EPackage) next).getNsURI() != null)
+					registry.put(((EPackage) next).getNsURI(), next);
+				else if (next instanceof EClass)
+					EcoreUtil3.initialize((EClass) next);
+			}
+		}
+		return registry;
+	}
+
+	protected XtextResourceSet createResourceSet() {
+		XtextResourceSet resourceSet = resourceSetProvider.get();
+		resourceSet.setPackageRegistry(packageRegistry);
+		if (index != null)
+			ResourceDescriptionsData.ResourceSetAdapter.installResourceDescriptionsData(resourceSet, index);
+		return resourceSet;
+	}
+
+	// each file on its own, as they are independent of each other for the index (there is no linking yet)
+	protected List<IResourceDescription> indexChunk(List<URI> chunk) {
+		List<IResourceDescription> descriptions = Lists.newArrayListWithCapacity(chunk.size());
+		XtextResourceSet resourceSet = createResourceSet();
+		for (URI uri : chunk) {
+			try {
+				Resource resource = resourceSet.getResource(uri, true);
+				IResourceDescription.Manager manager = ((XtextResource) resource).getResourceServiceProvider().getResourceDescriptionManager();
+				descriptions.add(SerializableResourceDescription.createCopy(manager.getResourceDescription(resource)));
+			} catch (RuntimeException e) {
+				// reported by validateChunk()
+			} finally {
+				unloadAll(resourceSet);
+			}
+		}
+		return descriptions;
+	}
+
+	protected List<Issue> validateChunk(List<URI> chunk) {
+		List<Issue> issues = Lists.newArrayList();
+		XtextResourceSet resourceSet = createResourceSet();
+		try {
+			for (URI uri : chunk) {
+				try {
+					Resource resource = resourceSet.getResource(uri, true);
+					issues.addAll(resourceValidator.validate(resource, CheckMode.ALL, CancelIndicator.NullImpl));
+					// linked anyway, so the next run can load it from the cache, if enabled
+					if (resource instanceof EFactoryResource)
+						((EFactoryResource) resource).saveToStorage();
+				} catch (RuntimeException e) {
+					Issue.IssueImpl issue = new Issue.IssueImpl();
+					issue.setSeverity(Severity.ERROR);
+					issue.setUriToProblem(uri);
+					issue.setMessage("could not be loaded: " + e);
+					issues.add(issue);
+				}
+			}
+		} finally {
+			unloadAll(resourceSet);
+		}
+		return issues;
+	}
+
+	private void unloadAll(ResourceSet resourceSet) {
+		for (Resource resource : resourceSet.getResources()) {
+			resource.unload();
+		}
+		resourceSet.getResources().clear();
+	}
+
+	private interface ChunkFunction<T> {
+		T apply(List<URI> chunk);
+	}
+
+	/**
+	 * @return the results for each chunk of files, in the order of the files
+	 */
+	private <T> List<T> inParallel(List<URI> files, ChunkFunction<T> function) {
+		int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, files.size() / (threads * 4)));
+		List<Callable<T>> tasks = Lists.newArrayList();
+		for (final List<URI> chunk : Lists.partition(files, chunkSize)) {
+			tasks.add(() -> function.apply(chunk));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	protected void print(Issue issue) {
+		URI uri = issue.getUriToProblem();
+		String path = uri == null ? "?" : uri.trimFragment().isFile() ? uri.trimFragment().toFileString() : uri.trimFragment().toString();
+		out.println(path + ":" + orZero(issue.getLineNumber()) + ":" + orZero(issue.getColumn()) + ": " + issue.getSeverity() + ": "
+				+ Strings.nullToEmpty(issue.getMessage()).replace('\n', ' ').replace('\r', ' ') + (issue.getCode() != null ? " [" + issue.getCode() + "]" : ""));
+	}
+
+	private static int orZero(Integer value) {
+		return value != null ? value : 0;
+	}
+}
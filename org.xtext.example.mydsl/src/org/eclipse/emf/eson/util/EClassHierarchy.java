@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.util;
+
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Sets;
+
+/**
+ * Subtype lattice of all EClasses (of all metamodels) used so far, for O(1) assignability tests.
+ *
+ * Each EClass gets an id when it is first used, and keeps the ids of all its super types in a BitSet.
+ * EMF recomputes the getEAllSuperTypes() list of an EClass whenever its hierarchy changes (e.g. when an *.ecore
+ * in the workspace is edited), so when that list is not the one the lattice was built from
+ * anymore, the lattice is simply rebuilt (lazily), as are ids of EClasses which were garbage collected.
+ *
+ * Thread safe, and queries don't lock: Nodes are immutable, and a rebuild replaces the whole Generation.
+ * Only adding EClasses locks.
+ */
+public final class EClassHierarchy {
+
+	private static final EClassHierarchy INSTANCE = new EClassHierarchy();
+
+	// only held while adding EClasses
+	private final Object lock = new Object();
+	private volatile Generation generation = new Generation();
+
+	private static final class Generation {
+		// weak keys, which MapMaker compares by identity; concurrent, so that it can be read without lock
+		final ConcurrentMap<EClass, Node> nodes = new MapMaker().weakKeys().makeMap();
+		// the number of ids given out, including those of EClasses which were garbage collected; only written holding the lock
+		int size = 0;
+
+		@Nullable Node getValidNode(EClass eClass) {
+			Node node = nodes.get(eClass);
+			return node != null && node.eAllSuperTypes.get() == eClass.getEAllSuperTypes() ? node : null;
+		}
+
+		int newId() {
+			return size++;
+		}
+	}
+
+	private static final class Node {
+		final int id;
+		// to notice when the hierarchy changed; weak, as the list references the EClass (the key of the weak map)
+		final WeakReference<EList<EClass>> eAllSuperTypes;
+		// ids of the EClass itself and of all its super types; never changed
+		final BitSet superTypes;
+
+		Node(int id, WeakReference<EList<EClass>> eAllSuperTypes, BitSet superTypes) {
+			this.id = id;
+			this.eAllSuperTypes = eAllSuperTypes;
+			this.superTypes = superTypes;
+		}
+	}
+
+	private EClassHierarchy() {
+	}
+
+	public static EClassHierarchy getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Like eClass.isSuperTypeOf(potentialSubclass), but O(1).
+	 */
+	public boolean isSubClass(EClass eClass, EClass potentialSubclass) {
+		if (potentialSubclass == null)
+			return false;
+		if (eClass == potentialSubclass)
+			return true;
+		if (eClass.eIsProxy() || potentialSubclass.eIsProxy())
+			return potentialSubclass.getEAllSuperTypes().contains(eClass);
+		Generation current = generation;
+		Node subNode = current.getValidNode(potentialSubclass);
+		Node node = current.getValidNode(eClass);
+		if (subNode == null || node == null) {
+			synchronized (lock) {
+				node = getNode(eClass);
+				subNode = getNode(potentialSubclass);
+				// getNode(potentialSubclass) may have had to rebuild everything
+				if (generation.nodes.get(eClass) != node)
+					node = getNode(eClass);
+			}
+		}
+		return subNode.superTypes.get(node.id);
+	}
+
+	// must hold the lock
+	private Node getNode(EClass eClass) {
+		Generation current = generation;
+		Node node = current.getValidNode(eClass);
+		if (node != null)
+			return node;
+		if (current.nodes.containsKey(eClass) || isAnySuperTypeChanged(current, eClass) || current.size > 2 * current.nodes.size() + 1024) {
+			current = new Generation();
+			generation = current;
+		}
+		return createNode(current, eClass, Sets.<EClass>newIdentityHashSet());
+	}
+
+	private boolean isAnySuperTypeChanged(Generation current, EClass eClass) {
+		for (EClass superType : eClass.getEAllSuperTypes()) {
+			Node superNode = current.nodes.get(superType);
+			if (superNode != null && superNode.eAllSuperTypes.get() != superType.getEAllSuperTypes())
+				return true;
+		}
+		return false;
+	}
+
+	// the Nodes of all super types of the EClass must be valid (or not exist yet)
+	private Node createNode(Generation current, EClass eClass, Set<EClass> creating) {
+		// to skip the super types which are being created, in case of an (invalid) cyclic hierarchy
+		creating.add(eClass);
+		EList<EClass> eAllSuperTypes = eClass.getEAllSuperTypes();
+		int id = current.newId();
+		BitSet superTypes = new BitSet();
+		superTypes.set(id);
+		for (EClass superType : eAllSuperTypes) {
+			if (superType.eIsProxy() || creating.contains(superType))
+				continue;
+			Node superNode = current.nodes.get(superType);
+			if (superNode == null)
+				superNode = createNode(current, superType, creating);
+			superTypes.set(superNode.id);
+		}
+		Node node = new Node(id, new WeakReference<EList<EClass>>(eAllSuperTypes), superTypes);
+		current.nodes.put(eClass, node);
+		return node;
+	}
+}
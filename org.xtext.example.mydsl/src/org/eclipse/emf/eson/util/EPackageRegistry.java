@@ -12,7 +12,10 @@
  */
 package org.eclipse.emf.eson.util;
 
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.emf.common.util.WrappedException;
 import org.eclipse.emf.ecore.EObject;
@@ -20,11 +23,15 @@ import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EPackage.Registry;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.eson.util.EPackageRegistry.EPackageRegistryESONImpl;
+import org.eclipse.jdt.annotation.Nullable;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.inject.ImplementedBy;
 
 /**
@@ -52,6 +59,21 @@ public interface EPackageRegistry {
 
 		protected final EPackage.Registry delegate;
 
+		// keyed by identity (weakKeys), as EPackage.Registry are HashMap with content based equals()
+		private final Cache<EPackage.Registry, NsURIsSnapshot> snapshots = CacheBuilder.newBuilder().weakKeys().build();
+
+		// see invalidateGlobalRegistry()
+		private static final AtomicInteger globalRegistryInvalidations = new AtomicInteger();
+
+		/**
+		 * EPackage.Registry.INSTANCE is not a VersionedEPackageRegistry, and hashing its nsURIs on every call would be linear;
+		 * so its nsURIs are kept for the lifetime of the process, and only enumerated again when its size changed (e.g. when
+		 * a generated EPackage registered itself on its first use), or when this was called after any other change of it.
+		 */
+		public static void invalidateGlobalRegistry() {
+			globalRegistryInvalidations.incrementAndGet();
+		}
+
 		public EPackageRegistryESONImpl(Registry delegate) {
 			super();
 			if (delegate == null)
@@ -79,7 +101,26 @@ public interface EPackageRegistry {
 			return getNsURIs(context.getPackageRegistry());
 		}
 
+		/**
+		 * The nsURIs of the registry (and its delegate), from a snapshot which is only taken again when one of them changed.
+		 *
+		 * As long as the registries do not change, this returns the very same (immutable) Iterable.
+		 */
 		protected Iterable<String> getNsURIs(EPackage.Registry registry) {
+			// null if the registry is the delegate itself
+			EPackage.Registry _delegate = registry == delegate ? null : delegate;
+			NsURIsSnapshot snapshot = snapshots.getIfPresent(registry);
+			if (snapshot == null || !snapshot.isCurrent(registry, _delegate)) {
+				// the states before the copy, so that a change while copying makes the snapshot outdated
+				Object state = getState(registry);
+				Object delegateState = _delegate != null ? getState(_delegate) : null;
+				snapshot = new NsURIsSnapshot(state, delegateState, copyNsURIs(registry));
+				snapshots.put(registry, snapshot);
+			}
+			return snapshot.nsURIs;
+		}
+
+		protected List<String> copyNsURIs(EPackage.Registry registry) {
 			Iterable<String> packageURIsIterable = registry.keySet();
 			// hah! org.eclipse.emf.ecore.impl.EPackageRegistryImpl actually behaves some weired/unexpectly:
 			// Whereas for getEPackage() it delegates to its delegateRegistry, for keySet() etc. it does not!
@@ -87,10 +128,52 @@ public interface EPackageRegistry {
 			if (!delegate.equals(registry)) 
 				packageURIsIterable = Iterables.concat(packageURIsIterable, delegate.keySet());
 			// copy due to potential ConcurrentModificationException (CME) while resolving EPackages later.. :(
-			List<String> packageURIs = Lists.newArrayList(packageURIsIterable);
 			// Strange, but yes we've seen packages with null nsURI in the wild!
-			Iterable<String> packageUrisWithoutAnyNulls = Iterables.filter(packageURIs, Predicates.notNull());
-			return packageUrisWithoutAnyNulls;
+			return ImmutableList.copyOf(Iterables.filter(packageURIsIterable, Predicates.notNull()));
+		}
+
+		/**
+		 * State of the nsURIs of the registry, to tell later whether they changed, see isUnchanged().  A version number
+		 * for a VersionedEPackageRegistry, and for the global registry (see invalidateGlobalRegistry()); a copy of the nsURIs
+		 * of any other registry, as anything smaller (e.g. a sum of their hash codes) can be the same for different nsURIs.
+		 *
+		 * @return null if unknown, e.g. if the registry was changed while copying it
+		 */
+		protected static @Nullable Object getState(EPackage.Registry registry) {
+			if (registry instanceof VersionedEPackageRegistry)
+				return (long) ((VersionedEPackageRegistry) registry).getModificationCount();
+			if (registry == EPackage.Registry.INSTANCE)
+				return ((long) globalRegistryInvalidations.get() << 32) + registry.size();
+			try {
+				return ImmutableSet.copyOf(Iterables.filter(registry.keySet(), Predicates.notNull()));
+			} catch (ConcurrentModificationException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Whether the nsURIs of the registry are still those of the state from getState(); constant time for a version number,
+		 * else linear, but without copying the nsURIs again.
+		 */
+		protected static boolean isUnchanged(EPackage.Registry registry, @Nullable Object state) {
+			if (state == null)
+				return false;
+			if (!(state instanceof Set))
+				return state.equals(getState(registry));
+			Set<?> nsURIs = (Set<?>) state;
+			int size = 0;
+			try {
+				for (String nsURI : registry.keySet()) {
+					if (nsURI == null)
+						continue;
+					if (!nsURIs.contains(nsURI))
+						return false;
+					size++;
+				}
+			} catch (ConcurrentModificationException e) {
+				return false;
+			}
+			return size == nsURIs.size();
 		}
 		
 		@Override
@@ -126,6 +209,22 @@ public interface EPackageRegistry {
 				return Optional.absent();
 			}
 		}
+
+		private static class NsURIsSnapshot {
+			final @Nullable Object state;
+			final @Nullable Object delegateState;
+			final List<String> nsURIs;
+
+			NsURIsSnapshot(@Nullable Object state, @Nullable Object delegateState, List<String> nsURIs) {
+				this.state = state;
+				this.delegateState = delegateState;
+				this.nsURIs = nsURIs;
+			}
+
+			boolean isCurrent(EPackage.Registry registry, EPackage.Registry delegate) {
+				return isUnchanged(registry, state) && (delegate == null || isUnchanged(delegate, delegateState));
+			}
+		}
 	}
 
 }
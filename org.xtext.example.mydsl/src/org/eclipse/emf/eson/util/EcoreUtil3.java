@@ -30,6 +30,7 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcorePackage;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.eson.eFactory.Feature;
 import org.eclipse.xtext.xbase.lib.Functions;
@@ -48,21 +49,58 @@ public final class EcoreUtil3 {
 		return !eClass.isAbstract() && !eClass.isInterface();
 	}
 
+	/**
+	 * @see EClassHierarchy#isSubClass(EClass, EClass)
+	 */
 	public static boolean isSubClass(EClass eClass, EClass potentialSubclass) {
-		if (potentialSubclass == null) {
-			return false;
+		return EClassHierarchy.getInstance().isSubClass(eClass, potentialSubclass);
+	}
+
+	/**
+	 * Like EcoreUtil2.isAssignableFrom(), i.e. isSubClass(), but also true for the EObject EClass (which is
+	 * implicitly a super type of all EClasses).  Unlike EcoreUtil2, this doesn't compare EClasses by name.
+	 */
+	public static boolean isAssignableFrom(EClass eClass, EClass candidate) {
+		return eClass == EcorePackage.Literals.EOBJECT || isSubClass(eClass, candidate);
+	}
+
+	/**
+	 * Computes everything which an EClass (and its features) computes lazily, and which is not thread safe,
+	 * so that several threads can then create and eSet() instances of it concurrently.
+	 */
+	public static void initialize(EClass eClass) {
+		eClass.getEAllSuperTypes();
+		eClass.getEAllGenericSuperTypes();
+		eClass.getEAllAttributes();
+		eClass.getEAllReferences();
+		eClass.getEAllContainments();
+		eClass.getEAllOperations();
+		eClass.getEIDAttribute();
+		// builds the name to feature map
+		eClass.getEStructuralFeature("");
+		for (EStructuralFeature eFeature : eClass.getEAllStructuralFeatures()) {
+			eClass.getFeatureID(eFeature);
+			eFeature.getEType();
+			eFeature.getDefaultValue();
+			((EStructuralFeature.Internal) eFeature).getSettingDelegate();
+			if (eFeature instanceof EReference) {
+				((EReference) eFeature).getEReferenceType();
+				((EReference) eFeature).getEOpposite();
+			}
 		}
+	}
 
-		if (eClass == potentialSubclass) {
-			return true;
+	/**
+	 * initialize() of all EClasses of an EPackage, including those of its sub-packages.
+	 */
+	public static void initialize(EPackage ePackage) {
+		for (EClassifier eClassifier : ePackage.getEClassifiers()) {
+			if (eClassifier instanceof EClass)
+				initialize((EClass) eClassifier);
 		}
-		for (EClass superType : potentialSubclass.getEAllSuperTypes()) {
-			if (eClass == superType) {
-				return true;
-			}
+		for (EPackage eSubpackage : ePackage.getESubpackages()) {
+			initialize(eSubpackage);
 		}
-
-		return false;
 	}
 
 	public static boolean isEReference(EStructuralFeature eFeature) {
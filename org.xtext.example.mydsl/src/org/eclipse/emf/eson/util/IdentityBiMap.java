@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact bidirectional map which compares keys and values by identity (==), like EMF EObjects.
+ *
+ * Entries are kept in two parallel arrays (in insertion order), and both directions
+ * are indexed by an open addressing (linear probing) table of int entry indexes,
+ * so there are no per-entry objects at all.  This needs less than half of the memory
+ * of a Guava HashBiMap, and no hashCode() calls.
+ *
+ * Like HashBiMap, a value can only be mapped from one key.  Not thread safe.
+ */
+public final class IdentityBiMap<K, V> {
+
+	private static final int MIN_CAPACITY = 16;
+	// clear() releases the arrays if they are this many times larger than what the last entries needed
+	private static final int SHRINK_FACTOR = 4;
+
+	private Object[] keys;
+	private Object[] values;
+	private int size;
+
+	// entry index + 1 (so 0 is free), length is a power of 2 and at least twice the capacity of the entries
+	private int[] keyTable;
+	private int[] valueTable;
+
+	public IdentityBiMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize number of entries which fit without having to grow
+	 */
+	public IdentityBiMap(int expectedSize) {
+		allocate(Math.max(MIN_CAPACITY, expectedSize));
+	}
+
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		keyTable = new int[tableSize];
+		valueTable = new int[tableSize];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		int index = indexOf(keyTable, keys, key);
+		return index < 0 ? null : (V) values[index];
+	}
+
+	/**
+	 * Inverse of get().
+	 */
+	@SuppressWarnings("unchecked")
+	public K getKey(Object value) {
+		int index = indexOf(valueTable, values, value);
+		return index < 0 ? null : (K) keys[index];
+	}
+
+	public boolean containsValue(Object value) {
+		return indexOf(valueTable, values, value) >= 0;
+	}
+
+	/**
+	 * Maps key to value, replacing the key's previous value.
+	 *
+	 * @throws IllegalArgumentException if the value is already mapped from another key
+	 */
+	public void put(K key, V value) {
+		if (key == null || value == null)
+			throw new IllegalArgumentException("IdentityBiMap does not support null keys or values");
+		int existing = indexOf(valueTable, values, value);
+		if (existing >= 0) {
+			if (keys[existing] == key)
+				return;
+			throw new IllegalArgumentException("value already present: " + value);
+		}
+		int index = indexOf(keyTable, keys, key);
+		if (index >= 0) {
+			remove(valueTable, values, index);
+			values[index] = value;
+			insert(valueTable, value, index);
+			return;
+		}
+		if (size == keys.length)
+			grow();
+		keys[size] = key;
+		values[size] = value;
+		insert(keyTable, key, size);
+		insert(valueTable, value, size);
+		size++;
+	}
+
+	public void putAll(IdentityBiMap<? extends K, ? extends V> other) {
+		for (int i = 0; i < other.size; i++) {
+			@SuppressWarnings("unchecked") K key = (K) other.keys[i];
+			@SuppressWarnings("unchecked") V value = (V) other.values[i];
+			put(key, value);
+		}
+	}
+
+	/**
+	 * Read-only view of all values, in the order they were first put.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		return (List<V>) Collections.unmodifiableList(Arrays.asList(values).subList(0, size));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Grows at once, so that expectedSize entries fit without growing step by step.
+	 */
+	public void ensureCapacity(int expectedSize) {
+		if (expectedSize > keys.length)
+			resize(expectedSize);
+	}
+
+	/**
+	 * Removes all entries, but keeps the capacity the current entries needed (as a rebuild will most likely need as much again);
+	 * any capacity much larger than that, e.g. from a model which has since become a lot smaller, is released.
+	 */
+	public void clear() {
+		int needed = Math.max(MIN_CAPACITY, size);
+		if (keys.length > needed * SHRINK_FACTOR) {
+			allocate(needed);
+		} else {
+			Arrays.fill(keys, 0, size, null);
+			Arrays.fill(values, 0, size, null);
+			Arrays.fill(keyTable, 0);
+			Arrays.fill(valueTable, 0);
+		}
+		size = 0;
+	}
+
+	private void grow() {
+		resize(keys.length * 2);
+	}
+
+	private void resize(int capacity) {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		System.arraycopy(oldKeys, 0, keys, 0, size);
+		System.arraycopy(oldValues, 0, values, 0, size);
+		for (int i = 0; i < size; i++) {
+			insert(keyTable, keys[i], i);
+			insert(valueTable, values[i], i);
+		}
+	}
+
+	// package-private for IdentityBiMapTest, which needs colliding objects
+	static int slot(Object o, int mask) {
+		int h = System.identityHashCode(o);
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private static int indexOf(int[] table, Object[] entries, Object o) {
+		int mask = table.length - 1;
+		for (int s = slot(o, mask); ; s = (s + 1) & mask) {
+			int entry = table[s];
+			if (entry == 0)
+				return -1;
+			if (entries[entry - 1] == o)
+				return entry - 1;
+		}
+	}
+
+	private static void insert(int[] table, Object o, int index) {
+		int mask = table.length - 1;
+		int s = slot(o, mask);
+		while (table[s] != 0)
+			s = (s + 1) & mask;
+		table[s] = index + 1;
+	}
+
+	// backward shift deletion, so that no tombstones are needed; entries[index] must still be the object to remove
+	private static void remove(int[] table, Object[] entries, int index) {
+		int mask = table.length - 1;
+		int free = slot(entries[index], mask);
+		while (table[free] != index + 1)
+			free = (free + 1) & mask;
+		for (int s = (free + 1) & mask; table[s] != 0; s = (s + 1) & mask) {
+			int home = slot(entries[table[s] - 1], mask);
+			if (((s - home) & mask) >= ((s - free) & mask)) {
+				table[free] = table[s];
+				free = s;
+			}
+		}
+		table[free] = 0;
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ * #%L
+ * org.eclipse.emf.eson
+ * %%
+ * Copyright (C) 2009 - 2014 Sebastian Benz, Michael Vorburger and others
+ * %%
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * #L%
+ */
+package org.eclipse.emf.eson.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.impl.EPackageRegistryImpl;
+
+import com.google.common.collect.ForwardingCollection;
+import com.google.common.collect.ForwardingIterator;
+import com.google.common.collect.ForwardingSet;
+
+/**
+ * EPackage Registry which counts its modifications, so that EPackageRegistry can tell in constant
+ * time whether its nsURIs have changed since the last time they were enumerated.
+ *
+ * The count is incremented after each modification (through any method of the Map, or removal
+ * through its views), so that a snapshot taken concurrently is never recorded with the new count.
+ * Only Entry.setValue() is not counted, as it cannot change the nsURIs.
+ *
+ * The XtextResourceSet of ESON (see EFactoryResourceSet) uses it as its package registry; any other
+ * registry is checked by its content instead, see EPackageRegistry.EPackageRegistryESONImpl.
+ */
+public class VersionedEPackageRegistry extends EPackageRegistryImpl {
+	private static final long serialVersionUID = 1L;
+
+	private final AtomicInteger modificationCount = new AtomicInteger();
+
+	public VersionedEPackageRegistry() {
+		super();
+	}
+
+	public VersionedEPackageRegistry(EPackage.Registry delegateRegistry) {
+		super(delegateRegistry);
+	}
+
+	/**
+	 * Changes whenever an nsURI is added to or removed from this registry, or one is replaced.
+	 */
+	public int getModificationCount() {
+		return modificationCount.get();
+	}
+
+	private void modified() {
+		modificationCount.incrementAndGet();
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		try {
+			return super.put(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends Object> m) {
+		try {
+			super.putAll(m);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public Object putIfAbsent(String key, Object value) {
+		try {
+			return super.putIfAbsent(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public Object remove(Object key) {
+		try {
+			return super.remove(key);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		try {
+			return super.remove(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public Object replace(String key, Object value) {
+		try {
+			return super.replace(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public boolean replace(String key, Object oldValue, Object newValue) {
+		try {
+			return super.replace(key, oldValue, newValue);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public void replaceAll(BiFunction<? super String, ? super Object, ? extends Object> function) {
+		try {
+			super.replaceAll(function);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public Object compute(String key, BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		try {
+			return super.compute(key, remappingFunction);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public Object computeIfAbsent(String key, Function<? super String, ? extends Object> mappingFunction) {
+		try {
+			return super.computeIfAbsent(key, mappingFunction);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		try {
+			return super.computeIfPresent(key, remappingFunction);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		try {
+			return super.merge(key, value, remappingFunction);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public void clear() {
+		try {
+			super.clear();
+		} finally {
+			modified();
+		}
+	}
+
+	// the views of a HashMap remove without calling remove(), so their removals are counted here
+
+	@Override
+	public Set<String> keySet() {
+		return new CountingSet<String>(super.keySet());
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return new CountingCollection<Object>(super.values());
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new CountingSet<Entry<String, Object>>(super.entrySet());
+	}
+
+	private final class CountingSet<E> extends ForwardingSet<E> {
+		private final Set<E> delegate;
+
+		CountingSet(Set<E> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		protected Set<E> delegate() {
+			return delegate;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new CountingIterator<E>(delegate.iterator());
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			try {
+				return delegate.remove(object);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> collection) {
+			try {
+				return delegate.removeAll(collection);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> collection) {
+			try {
+				return delegate.retainAll(collection);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public boolean removeIf(Predicate<? super E> filter) {
+			try {
+				return delegate.removeIf(filter);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public void clear() {
+			try {
+				delegate.clear();
+			} finally {
+				modified();
+			}
+		}
+	}
+
+	private final class CountingCollection<E> extends ForwardingCollection<E> {
+		private final Collection<E> delegate;
+
+		CountingCollection(Collection<E> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		protected Collection<E> delegate() {
+			return delegate;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new CountingIterator<E>(delegate.iterator());
+		}
+
+		@Override
+		public boolean remove(Object object) {
+			try {
+				return delegate.remove(object);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> collection) {
+			try {
+				return delegate.removeAll(collection);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> collection) {
+			try {
+				return delegate.retainAll(collection);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public boolean removeIf(Predicate<? super E> filter) {
+			try {
+				return delegate.removeIf(filter);
+			} finally {
+				modified();
+			}
+		}
+
+		@Override
+		public void clear() {
+			try {
+				delegate.clear();
+			} finally {
+				modified();
+			}
+		}
+	}
+
+	private final class CountingIterator<E> extends ForwardingIterator<E> {
+		private final Iterator<E> delegate;
+
+		CountingIterator(Iterator<E> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		protected Iterator<E> delegate() {
+			return delegate;
+		}
+
+		@Override
+		public void remove() {
+			try {
+				delegate.remove();
+			} finally {
+				modified();
+			}
+		}
+	}
+}
@@ -16,8 +16,6 @@ import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
-import javax.inject.Inject;
-
 import org.eclipse.emf.common.util.Diagnostic;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EAttribute;
@@ -31,6 +29,7 @@ import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.EcorePackage;
 import org.eclipse.emf.ecore.util.Diagnostician;
 import org.eclipse.emf.ecore.util.EObjectValidator;
+import org.eclipse.emf.eson.building.ModelBuilder;
 import org.eclipse.emf.eson.building.NameAccessor;
 import org.eclipse.emf.eson.building.NewObjectExtensions;
 import org.eclipse.emf.eson.eFactory.Attribute;
@@ -49,6 +48,7 @@ import org.eclipse.emf.eson.eFactory.StringAttribute;
 import org.eclipse.emf.eson.eFactory.Value;
 import org.eclipse.emf.eson.eFactory.util.EFactorySwitch;
 import org.eclipse.emf.eson.resource.EFactoryResource;
+import org.eclipse.emf.eson.scoping.EFactoryQualifiedNameProvider;
 import org.eclipse.emf.eson.util.EcoreUtil3;
 import org.eclipse.emf.eson.util.XtextProxyUtil;
 import org.eclipse.xtext.EcoreUtil2;
@@ -56,6 +56,8 @@ import org.eclipse.xtext.validation.Check;
 import org.eclipse.xtext.validation.CheckType;
 
 import com.google.common.base.Optional;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 /**
  * Validator.
@@ -69,6 +71,7 @@ public class EFactoryJavaValidator extends AbstractEFactoryValidator {
 	
 	public static final String ERR_CANNOT_NAME = "cannotname";
 	public static final String ERR_BAD_TYPE = "badtype";
+	public static final String WARN_NAME_ATTRIBUTE_NOT_EXPORTED = "nameattributenotexported";
 
 	// NOTE: There are a lot of possible NullPointerException in here in the
 	// scenario where some reference types are still proxies.. but the NPEs get
@@ -78,6 +81,10 @@ public class EFactoryJavaValidator extends AbstractEFactoryValidator {
 	protected @Inject XtextProxyUtil xtextProxyUtil;
 	protected @Inject NewObjectExtensions newObjectExtensions;
 
+	@Inject(optional = true)
+	@Named(ModelBuilder.EXPORTS_ONLY_KEY)
+	private boolean exportsOnly = false;
+
 	protected class AttributeValidator extends EFactorySwitch<Boolean> {
 
 		@Override
@@ -291,6 +298,17 @@ public class EFactoryJavaValidator extends AbstractEFactoryValidator {
 		checkCardinality(feature);
 		checkIsFeature(feature);
 		checkMissingFeatureValue(feature);
+		checkNameAttributeExported(feature);
+	}
+
+	// @see ModelBuilder.EXPORTS_ONLY_KEY
+	private void checkNameAttributeExported(Feature feature) {
+		if (!exportsOnly || !(feature.getValue() instanceof Attribute))
+			return;
+		if (EFactoryQualifiedNameProvider.NAME_ATTRIBUTE_NAME.equals(feature.getEFeature().getName()))
+			warning("Objects named by a '" + EFactoryQualifiedNameProvider.NAME_ATTRIBUTE_NAME
+					+ "' attribute cannot be referenced from other resources (exports only index); use a NewObject name instead",
+					EFactoryPackage.Literals.FEATURE__EFEATURE, WARN_NAME_ATTRIBUTE_NOT_EXPORTED);
 	}
 
 	private void checkMissingFeatureValue(Feature feature) {
@@ -401,7 +419,9 @@ public class EFactoryJavaValidator extends AbstractEFactoryValidator {
 			return;
 		if (eType instanceof EClass) {
 			EClass eClass = (EClass) eType;
-			if (!EcoreUtil2.isAssignableFrom(eClass, candidate)) {
+			// the O(1) identity based check first; EcoreUtil2.isAssignableFrom() also compares EClasses by name, which is
+			// needed if a metamodel was loaded twice, e.g. once registered and once from an *.ecore in the workspace
+			if (!EcoreUtil3.isAssignableFrom(eClass, candidate) && !EcoreUtil2.isAssignableFrom(eClass, candidate)) {
 				error("Wrong type. Expected instance of '" + eType.getName()
 						+ "'", containmentValue);
 			}
@@ -12,8 +12,6 @@
  */
 package org.eclipse.emf.eson.xtextbackpatch;
 
-import static com.google.common.collect.Lists.newArrayList;
-
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -57,7 +55,8 @@ public class FasterFlatResourceSetBasedAllContainersState extends FlatResourceSe
             if (descriptionsData != null) {
                 return descriptionsData.getAllURIs();
             }
-            return newArrayList(xtextResourceSet.getNormalizationMap().values());
+            // a view instead of a copy, this is called for every scope
+            return Collections.unmodifiableCollection(xtextResourceSet.getNormalizationMap().values());
         }
         List<URI> uris = Lists.newArrayListWithCapacity(resourceSet.getResources().size());
         URIConverter uriConverter = resourceSet.getURIConverter();